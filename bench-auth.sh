@@ -0,0 +1,68 @@
+#!/bin/bash
+
+# 认证开销压测脚本
+# 用同一个令牌并发请求受保护接口，然后从 actuator 读取令牌验证耗时：
+#   cache=miss：完整签名校验（改造前每个请求要做两次，且每次都重建密钥和解析器）
+#   cache=hit ：命中已验证令牌缓存，只计算一次摘要
+# 用法: ./bench-auth.sh [请求数] [并发数]
+
+BASE_URL="http://localhost:8080"
+# actuator 在独立的管理端口上（management.server.port）
+MGMT_URL=${MGMT_URL:-"http://localhost:8081"}
+REQUESTS=${1:-5000}
+CONCURRENCY=${2:-20}
+
+echo "======================================"
+echo "认证开销压测"
+echo "======================================"
+echo ""
+
+# 1. 登录获取 token
+LOGIN_RESPONSE=$(curl -s -X POST "$BASE_URL/api/auth/login" \
+  -H "Content-Type: application/json" \
+  -d '{
+    "username": "testuser",
+    "password": "123456"
+  }')
+
+TOKEN=$(echo $LOGIN_RESPONSE | jq -r '.data.token')
+
+if [ "$TOKEN" == "null" ] || [ -z "$TOKEN" ]; then
+  echo "❌ 登录失败，请先运行 test-api.sh 创建用户"
+  exit 1
+fi
+
+# 2. 并发请求受保护接口
+echo "发送 $REQUESTS 个请求（并发 $CONCURRENCY）..."
+START=$(date +%s.%N)
+seq $REQUESTS | xargs -P $CONCURRENCY -I {} \
+  curl -s -o /dev/null "$BASE_URL/api/users/me" -H "Authorization: Bearer $TOKEN"
+END=$(date +%s.%N)
+echo "✅ 总耗时 $(echo "$END - $START" | bc) 秒"
+echo ""
+
+# 3. 读取令牌验证耗时（微秒）
+print_timer() {
+  local METRIC=$(curl -s "$MGMT_URL/actuator/metrics/auth.token.verify?tag=cache:$1")
+  local COUNT=$(echo $METRIC | jq '.measurements[] | select(.statistic == "COUNT") | .value')
+  local TOTAL=$(echo $METRIC | jq '.measurements[] | select(.statistic == "TOTAL_TIME") | .value')
+  local MAX=$(echo $METRIC | jq '.measurements[] | select(.statistic == "MAX") | .value')
+  if [ -z "$COUNT" ] || [ "$COUNT" == "0" ] || [ "$COUNT" == "0.0" ]; then
+    echo "cache=$1: 无样本"
+    return
+  fi
+  echo "cache=$1: 次数 $COUNT, 平均 $(echo "scale=2; $TOTAL * 1000000 / $COUNT" | bc) µs, 最大 $(echo "scale=2; $MAX * 1000000" | bc) µs"
+}
+
+echo "令牌验证耗时:"
+print_timer miss
+print_timer hit
+echo ""
+
+echo "令牌缓存命中情况:"
+for RESULT in hit miss; do
+  echo "  $RESULT: $(curl -s "$MGMT_URL/actuator/metrics/cache.gets?tag=cache:jwt_token&tag=result:$RESULT" \
+    | jq '.measurements[0].value')"
+done
+
+echo "======================================"
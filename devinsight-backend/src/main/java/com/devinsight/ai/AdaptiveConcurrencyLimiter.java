@@ -0,0 +1,128 @@
+package com.devinsight.ai;
+
+/**
+ * 自适应并发上限（AIMD + 延迟信号）
+ * - 请求成功且延迟正常：上限每轮（约一个上限数量的请求）加 1，逐步探测 AI 服务的可用容量
+ * - 请求被限流 / 服务端错误 / 超时：上限乘以 backoffRatio
+ * - 请求成功但延迟超过最小延迟 × latencyTolerance：说明服务端开始排队，上限按 latencyBackoffRatio 缓慢回退
+ * 同一次拥塞会让在途请求集中失败，因此两次回退之间至少间隔一个平滑延迟，避免上限被连续砍到底。
+ * 最小延迟每隔 minRttWindow 重新采样，适应服务端延迟的长期变化。
+ *
+ * 线程安全：所有方法同步，调用频率与 AI 请求数相当。
+ */
+public class AdaptiveConcurrencyLimiter {
+    
+    /**
+     * 平滑延迟的 EWMA 系数
+     */
+    private static final double RTT_SMOOTHING = 0.1;
+    
+    private final int minLimit;
+    
+    private final int maxLimit;
+    
+    private final double latencyTolerance;
+    
+    private final double backoffRatio;
+    
+    private final double latencyBackoffRatio;
+    
+    private final long minRttWindowNanos;
+    
+    private double limit;
+    
+    private int inFlight;
+    
+    private long minRttNanos;
+    
+    private long minRttResetAt;
+    
+    private double smoothedRttNanos;
+    
+    private long lastDecreaseAt;
+    
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance,
+                                      double backoffRatio, long minRttWindowNanos) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("并发上限配置错误: min=" + minLimit + ", max=" + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        // 延迟上升是早期信号，回退幅度取丢弃时的一半
+        this.latencyBackoffRatio = 1 - (1 - backoffRatio) / 2;
+        this.minRttWindowNanos = minRttWindowNanos;
+    }
+    
+    /**
+     * 尝试占用一个并发名额
+     *
+     * @return 是否成功（失败时调用方应排队等待）
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+    
+    /**
+     * 请求正常完成（包括 4xx 等与服务端负载无关的响应）
+     *
+     * @param rttNanos 请求耗时
+     */
+    public synchronized void onSuccess(long rttNanos) {
+        inFlight--;
+        long now = System.nanoTime();
+        if (minRttNanos == 0 || now - minRttResetAt > minRttWindowNanos) {
+            // 窗口到期：以当前样本重新开始采样
+            minRttNanos = rttNanos;
+            minRttResetAt = now;
+        } else if (rttNanos < minRttNanos) {
+            minRttNanos = rttNanos;
+        }
+        smoothedRttNanos = smoothedRttNanos == 0
+                ? rttNanos : smoothedRttNanos + RTT_SMOOTHING * (rttNanos - smoothedRttNanos);
+        
+        if (rttNanos > minRttNanos * latencyTolerance) {
+            decrease(now, latencyBackoffRatio);
+        } else if (inFlight + 1 >= limit / 2) {
+            // 只有在实际用到一半以上名额时才增长，空闲期不会把上限推高
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+    
+    /**
+     * 请求被限流、服务端错误或超时
+     */
+    public synchronized void onDropped() {
+        inFlight--;
+        decrease(System.nanoTime(), backoffRatio);
+    }
+    
+    /**
+     * 请求未发出（如构造请求失败），只归还名额
+     */
+    public synchronized void onIgnored() {
+        inFlight--;
+    }
+    
+    private void decrease(long now, double ratio) {
+        if (lastDecreaseAt != 0 && now - lastDecreaseAt < smoothedRttNanos) {
+            return;
+        }
+        lastDecreaseAt = now;
+        limit = Math.max(minLimit, limit * ratio);
+    }
+    
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+    
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
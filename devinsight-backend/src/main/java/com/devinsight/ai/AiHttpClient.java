@@ -0,0 +1,212 @@
+package com.devinsight.ai;
+
+import com.devinsight.exception.TaskExecutionException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AI 服务 HTTP 客户端
+ * 基于 JDK HttpClient 异步发送（HTTP/1.1 长连接复用），请求在途期间不占用线程。
+ * 同时在途的请求数由 AdaptiveConcurrencyLimiter 根据延迟和错误率动态调整，超出的请求进入有界队列，
+ * 有请求完成时再从队列中取出发送；队列也满时直接按可重试失败返回。
+ */
+@Slf4j
+@Component
+public class AiHttpClient {
+    
+    @Autowired
+    private AiProviderProperties properties;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private HttpClient httpClient;
+    
+    private ExecutorService ioExecutor;
+    
+    private AdaptiveConcurrencyLimiter limiter;
+    
+    private BlockingQueue<PendingRequest> pending;
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ioExecutor = Executors.newFixedThreadPool(properties.getIoThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "ai-http-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.getConnectTimeout())
+                .executor(ioExecutor)
+                .build();
+        AiProviderProperties.Limiter limiterProperties = properties.getLimiter();
+        limiter = new AdaptiveConcurrencyLimiter(limiterProperties.getInitialLimit(),
+                limiterProperties.getMinLimit(), limiterProperties.getMaxLimit(),
+                limiterProperties.getLatencyTolerance(), limiterProperties.getBackoffRatio(),
+                limiterProperties.getMinRttWindow().toNanos());
+        pending = new LinkedBlockingQueue<>(properties.getMaxPending());
+        
+        Gauge.builder("ai.provider.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("AI 服务当前的自适应并发上限")
+                .register(meterRegistry);
+        Gauge.builder("ai.provider.requests.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("发往 AI 服务的在途请求数")
+                .register(meterRegistry);
+        Gauge.builder("ai.provider.requests.pending", this, client -> client.pending.size())
+                .description("等待发送的 AI 服务请求数")
+                .register(meterRegistry);
+        
+        if (properties.isEnabled()) {
+            log.info("AI 服务地址: {}, 初始并发上限: {}", properties.getBaseUrl(), limiter.getLimit());
+        } else {
+            log.info("未配置 AI 服务地址，任务只使用本地分析结果");
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdownNow();
+    }
+    
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+    
+    /**
+     * 发送 JSON 请求
+     *
+     * @param path 接口路径
+     * @param body 请求体（JSON）
+     * @return 响应体；失败时以 TaskExecutionException 结束（超时、429、5xx 可重试）
+     */
+    public CompletableFuture<String> postJson(String path, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(properties.getBaseUrl() + path))
+                .timeout(properties.getReadTimeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+        PendingRequest pendingRequest = new PendingRequest(request);
+        
+        if (limiter.tryAcquire()) {
+            send(pendingRequest);
+        } else if (pending.offer(pendingRequest)) {
+            // 入队期间可能有请求完成并归还了许可
+            drain();
+        } else {
+            pendingRequest.future.completeExceptionally(
+                    new TaskExecutionException("AI 服务请求排队已满", true));
+        }
+        return pendingRequest.future;
+    }
+    
+    private void send(PendingRequest pendingRequest) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> response;
+        try {
+            response = httpClient.sendAsync(pendingRequest.request,
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            limiter.onIgnored();
+            drain();
+            pendingRequest.future.completeExceptionally(e);
+            return;
+        }
+        response.whenComplete((result, error) -> {
+            Throwable failure = error != null ? translate(error) : null;
+            
+            // 先更新并发上限并发出排队的请求，再回调调用方
+            if (isOverloaded(result, failure)) {
+                limiter.onDropped();
+            } else {
+                limiter.onSuccess(System.nanoTime() - start);
+            }
+            drain();
+            
+            if (failure != null) {
+                pendingRequest.future.completeExceptionally(failure);
+            } else {
+                complete(pendingRequest, result);
+            }
+        });
+    }
+    
+    /**
+     * 是否为服务端过载信号：限流、服务端错误、超时和连接失败
+     */
+    private boolean isOverloaded(HttpResponse<String> response, Throwable failure) {
+        if (failure != null) {
+            return failure instanceof TaskExecutionException && ((TaskExecutionException) failure).isRetryable();
+        }
+        return response.statusCode() == 429 || response.statusCode() >= 500;
+    }
+    
+    /**
+     * 有空闲名额时发送排队的请求
+     */
+    private void drain() {
+        while (!pending.isEmpty() && limiter.tryAcquire()) {
+            PendingRequest next = pending.poll();
+            if (next == null) {
+                limiter.onIgnored();
+                return;
+            }
+            send(next);
+        }
+    }
+    
+    private void complete(PendingRequest pendingRequest, HttpResponse<String> response) {
+        int status = response.statusCode();
+        if (status >= 200 && status < 300) {
+            pendingRequest.future.complete(response.body());
+            return;
+        }
+        // 限流和服务端错误可重试，其余 4xx 说明请求本身有问题
+        boolean retryable = status == 429 || status >= 500;
+        pendingRequest.future.completeExceptionally(
+                new TaskExecutionException("AI 服务返回错误: HTTP " + status, retryable));
+    }
+    
+    private Throwable translate(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof HttpTimeoutException) {
+            return new TaskExecutionException("AI 服务调用超时", true, cause);
+        }
+        if (cause instanceof IOException) {
+            return new TaskExecutionException("AI 服务调用失败: " + cause.getMessage(), true, cause);
+        }
+        return cause;
+    }
+    
+    private static class PendingRequest {
+        
+        private final HttpRequest request;
+        
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        
+        private PendingRequest(HttpRequest request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.devinsight.ai;
+
+import com.devinsight.entity.AiTask;
+import com.devinsight.enums.TaskType;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * AI 服务提供方（每种任务类型一个实现）
+ * process 在执行通道线程上调用：读取输入、本地预处理等同步完成，远程调用以异步结果返回，
+ * 调用期间执行通道线程即可处理其他任务。
+ */
+public interface AiProvider {
+    
+    /**
+     * 支持的任务类型
+     */
+    TaskType getTaskType();
+    
+    /**
+     * 处理任务
+     *
+     * @param task 任务对象
+     * @return 处理结果（JSON格式）
+     */
+    CompletableFuture<String> process(AiTask task) throws Exception;
+    
+    /**
+     * 将在途合并时共享的结果调整为本任务的结果（默认原样复用）
+     *
+     * @param task         加入在途执行的任务
+     * @param sharedResult 共享的处理结果
+     * @return 本任务的处理结果
+     */
+    default String applyOccurrence(AiTask task, String sharedResult) throws Exception {
+        return sharedResult;
+    }
+}
@@ -0,0 +1,82 @@
+package com.devinsight.ai;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * AI 服务调用配置
+ * base-url 为空时不调用远程服务，直接使用本地分析结果
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ai.provider")
+public class AiProviderProperties {
+    
+    /**
+     * AI 服务地址（如 http://localhost:9090，本地压测可指向 tools/StubAiProviderServer）
+     */
+    private String baseUrl;
+    
+    /**
+     * 建立连接超时
+     */
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    
+    /**
+     * 单次请求超时（发出请求到收到完整响应）
+     */
+    private Duration readTimeout = Duration.ofSeconds(30);
+    
+    /**
+     * 自适应并发上限
+     */
+    private Limiter limiter = new Limiter();
+    
+    /**
+     * 超过并发上限后排队的最大请求数，队列满时按可重试失败处理
+     */
+    private int maxPending = 256;
+    
+    /**
+     * 处理响应的线程数（请求在途期间不占用线程）
+     */
+    private int ioThreads = 4;
+    
+    public boolean isEnabled() {
+        return baseUrl != null && !baseUrl.isBlank();
+    }
+    
+    @Data
+    public static class Limiter {
+        
+        /**
+         * 启动时的并发上限
+         */
+        private int initialLimit = 8;
+        
+        private int minLimit = 1;
+        
+        /**
+         * 并发上限的最大值（连接复用，连接数不超过该值）
+         */
+        private int maxLimit = 64;
+        
+        /**
+         * 延迟超过最小延迟的该倍数时视为服务端开始排队
+         */
+        private double latencyTolerance = 2.0;
+        
+        /**
+         * 限流 / 服务端错误 / 超时后上限的缩减比例
+         */
+        private double backoffRatio = 0.75;
+        
+        /**
+         * 最小延迟的重新采样周期
+         */
+        private Duration minRttWindow = Duration.ofSeconds(30);
+    }
+}
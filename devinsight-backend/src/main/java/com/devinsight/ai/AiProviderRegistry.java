@@ -0,0 +1,44 @@
+package com.devinsight.ai;
+
+import com.devinsight.enums.TaskType;
+import com.devinsight.exception.TaskExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按任务类型查找 AI 服务提供方
+ */
+@Component
+public class AiProviderRegistry {
+    
+    private final Map<TaskType, AiProvider> providers = new EnumMap<>(TaskType.class);
+    
+    @Autowired
+    public AiProviderRegistry(List<AiProvider> providers) {
+        for (AiProvider provider : providers) {
+            AiProvider previous = this.providers.put(provider.getTaskType(), provider);
+            if (previous != null) {
+                throw new IllegalStateException("任务类型 " + provider.getTaskType() + " 存在多个 AiProvider: "
+                        + previous.getClass().getSimpleName() + ", " + provider.getClass().getSimpleName());
+            }
+        }
+    }
+    
+    /**
+     * 获取任务类型对应的提供方
+     *
+     * @param taskType 任务类型
+     * @return 提供方
+     */
+    public AiProvider getProvider(TaskType taskType) {
+        AiProvider provider = providers.get(taskType);
+        if (provider == null) {
+            throw new TaskExecutionException("未找到任务类型对应的 AI 服务: " + taskType, false);
+        }
+        return provider;
+    }
+}
@@ -0,0 +1,57 @@
+package com.devinsight.ai;
+
+import com.devinsight.analysis.ExceptionAnalyzer;
+import com.devinsight.analysis.StackTraceFingerprinter;
+import com.devinsight.entity.AiTask;
+import com.devinsight.enums.TaskType;
+import com.devinsight.service.TaskInputStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 异常分析
+ */
+@Component
+public class ExceptionAnalysisProvider extends RemoteAiProvider {
+    
+    @Autowired
+    private ExceptionAnalyzer exceptionAnalyzer;
+    
+    @Autowired
+    private StackTraceFingerprinter fingerprinter;
+    
+    @Autowired
+    private TaskInputStorage inputStorage;
+    
+    @Override
+    public TaskType getTaskType() {
+        return TaskType.EXCEPTION_ANALYSIS;
+    }
+    
+    @Override
+    protected String getPath() {
+        return "/v1/exception-analysis";
+    }
+    
+    @Override
+    protected String analyzeLocally(AiTask task) throws Exception {
+        return exceptionAnalyzer.analyze(readInput(task));
+    }
+    
+    /**
+     * 合并执行的任务按指纹共享分析结论，消息和出错位置换成本任务自己的
+     */
+    @Override
+    public String applyOccurrence(AiTask task, String sharedResult) throws IOException {
+        return exceptionAnalyzer.withOccurrence(sharedResult, fingerprinter.parse(readInput(task)));
+    }
+    
+    private String readInput(AiTask task) throws IOException {
+        // 上传的大输入只取前面的部分解析堆栈
+        return task.getInputRef() != null
+                ? inputStorage.readPrefix(task.getInputRef(), StackTraceFingerprinter.MAX_UPLOAD_PARSE_CHARS)
+                : task.getInputData().getText();
+    }
+}
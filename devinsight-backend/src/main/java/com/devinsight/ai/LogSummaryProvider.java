@@ -0,0 +1,44 @@
+package com.devinsight.ai;
+
+import com.devinsight.analysis.LogSummaryAnalyzer;
+import com.devinsight.entity.AiTask;
+import com.devinsight.enums.TaskType;
+import com.devinsight.service.TaskInputStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.Reader;
+
+/**
+ * 日志总结
+ */
+@Component
+public class LogSummaryProvider extends RemoteAiProvider {
+    
+    @Autowired
+    private LogSummaryAnalyzer logSummaryAnalyzer;
+    
+    @Autowired
+    private TaskInputStorage inputStorage;
+    
+    @Override
+    public TaskType getTaskType() {
+        return TaskType.LOG_SUMMARY;
+    }
+    
+    @Override
+    protected String getPath() {
+        return "/v1/log-summary";
+    }
+    
+    @Override
+    protected String analyzeLocally(AiTask task) throws Exception {
+        if (task.getInputRef() != null) {
+            // 上传的大日志直接从存储流式读取
+            try (Reader reader = inputStorage.openReader(task.getInputRef())) {
+                return logSummaryAnalyzer.analyze(reader);
+            }
+        }
+        return logSummaryAnalyzer.analyze(task.getInputData().getText());
+    }
+}
@@ -0,0 +1,68 @@
+package com.devinsight.ai;
+
+import com.devinsight.entity.AiTask;
+import com.devinsight.exception.TaskExecutionException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 调用远程 AI 服务的提供方基类
+ * 先用本地分析器把输入（可能很大的日志 / 堆栈）压缩为结构化的分析结果，再发给 AI 服务；
+ * 未配置 AI 服务地址时直接返回本地分析结果。
+ *
+ * 请求体：{"taskId": 1, "taskType": "LOG_SUMMARY", "analysis": {本地分析结果}}
+ * 响应体：{"result": {...}}，result 作为任务结果保存
+ */
+public abstract class RemoteAiProvider implements AiProvider {
+    
+    @Autowired
+    private AiHttpClient httpClient;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    /**
+     * AI 服务接口路径
+     */
+    protected abstract String getPath();
+    
+    /**
+     * 本地分析
+     *
+     * @param task 任务对象
+     * @return 分析结果（JSON格式）
+     */
+    protected abstract String analyzeLocally(AiTask task) throws Exception;
+    
+    @Override
+    public CompletableFuture<String> process(AiTask task) throws Exception {
+        String analysis = analyzeLocally(task);
+        if (!httpClient.isEnabled()) {
+            return CompletableFuture.completedFuture(analysis);
+        }
+        
+        ObjectNode request = objectMapper.createObjectNode();
+        request.put("taskId", task.getId());
+        request.put("taskType", getTaskType().getValue());
+        request.set("analysis", objectMapper.readTree(analysis));
+        return httpClient.postJson(getPath(), objectMapper.writeValueAsString(request))
+                .thenApply(this::extractResult);
+    }
+    
+    private String extractResult(String responseBody) {
+        try {
+            JsonNode result = objectMapper.readTree(responseBody).get("result");
+            if (result == null || result.isNull()) {
+                throw new TaskExecutionException("AI 服务响应缺少 result 字段", false);
+            }
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new TaskExecutionException("AI 服务响应不是有效的 JSON", false, e);
+        }
+    }
+}
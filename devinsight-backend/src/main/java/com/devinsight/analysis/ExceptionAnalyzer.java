@@ -0,0 +1,137 @@
+package com.devinsight.analysis;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 异常分析（本地规则实现）
+ * 基于解析出的堆栈给出异常类型、根因、出错位置和常见处理建议
+ */
+@Component
+public class ExceptionAnalyzer {
+    
+    /**
+     * 常见异常（按简单类名）的说明和建议
+     */
+    private static final Map<String, List<String>> KNOWN_EXCEPTIONS = Map.of(
+            "NullPointerException", List.of("对象未初始化时访问了其属性或方法",
+                    "检查对象是否正确初始化", "添加空值判断", "使用 Optional 类避免空指针"),
+            "IllegalArgumentException", List.of("方法收到了不合法的参数",
+                    "检查调用方传入的参数", "在入口处增加参数校验"),
+            "IllegalStateException", List.of("对象在当前状态下不允许该操作",
+                    "检查调用顺序和对象生命周期", "确认并发场景下状态是否被其他线程修改"),
+            "IndexOutOfBoundsException", List.of("访问集合或数组时下标越界",
+                    "检查下标计算和集合长度", "访问前判断集合是否为空"),
+            "ClassCastException", List.of("对象被强制转换为不兼容的类型",
+                    "检查泛型集合中实际存放的元素类型", "转换前使用 instanceof 判断"),
+            "NumberFormatException", List.of("字符串无法解析为数字",
+                    "校验输入格式", "捕获解析异常并给出友好提示"),
+            "SQLException", List.of("数据库访问失败",
+                    "检查 SQL 语句和参数", "检查数据库连接和约束"),
+            "SocketTimeoutException", List.of("网络调用超时",
+                    "检查下游服务响应时间", "合理设置超时和重试"),
+            "OutOfMemoryError", List.of("JVM 内存不足",
+                    "分析堆转储定位大对象", "检查是否存在内存泄漏或一次加载过多数据"),
+            "ConcurrentModificationException", List.of("遍历集合时集合被修改",
+                    "使用迭代器的 remove 方法", "并发场景改用并发集合"));
+    
+    @Autowired
+    private StackTraceFingerprinter fingerprinter;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    /**
+     * 分析异常
+     *
+     * @param inputData 任务输入
+     * @return 分析结果（JSON格式）
+     */
+    public String analyze(String inputData) {
+        ParsedStackTrace trace = fingerprinter.parse(inputData);
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("type", "EXCEPTION_ANALYSIS");
+        if (trace == null) {
+            result.put("summary", "输入中未找到 Java 异常堆栈");
+            result.put("suggestions", List.of("请提交完整的异常堆栈（包含异常类型和 at 开头的栈帧）"));
+            result.put("confidence", 0.0);
+        } else {
+            List<String> known = KNOWN_EXCEPTIONS.get(simpleName(trace.getRootCauseType()));
+            String location = trace.getTopApplicationFrame();
+            result.put("summary", buildSummary(trace, known, location));
+            result.put("exceptionType", trace.getExceptionType());
+            result.put("message", trace.getMessage());
+            result.put("rootCause", rootCause(trace));
+            result.put("location", location);
+            result.put("fingerprint", trace.getFingerprint());
+            result.put("suggestions", known != null
+                    ? known.subList(1, known.size())
+                    : List.of("根据根因异常消息定位出错代码", "检查出错位置附近的输入和状态"));
+            result.put("confidence", known != null ? 0.85 : 0.5);
+        }
+        result.put("analyzedAt", LocalDateTime.now().toString());
+        
+        try {
+            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化分析结果失败", e);
+        }
+    }
+    
+    /**
+     * 在共享的分析结果上写入本次异常的消息、根因和出错位置
+     * 同一指纹的异常共享一次分析（结果缓存、在途合并），消息中的变量和出错位置按各自的堆栈展示
+     *
+     * @param analysis 共享的分析结果（JSON格式）
+     * @param trace    本次异常的解析结果（为 null 时原样返回）
+     * @return 本次异常的分析结果；共享结果不是 JSON 对象时原样返回
+     */
+    public String withOccurrence(String analysis, ParsedStackTrace trace) {
+        if (analysis == null || trace == null) {
+            return analysis;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(analysis);
+            if (!(node instanceof ObjectNode result)) {
+                return analysis;
+            }
+            result.put("message", trace.getMessage());
+            result.put("rootCause", rootCause(trace));
+            result.put("location", trace.getTopApplicationFrame());
+            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            return analysis;
+        }
+    }
+    
+    private static String rootCause(ParsedStackTrace trace) {
+        return trace.getRootCauseType()
+                + (trace.getRootCauseMessage() != null && !trace.getRootCauseMessage().isEmpty()
+                ? ": " + trace.getRootCauseMessage() : "");
+    }
+    
+    private String buildSummary(ParsedStackTrace trace, List<String> known, String location) {
+        StringBuilder summary = new StringBuilder(simpleName(trace.getRootCauseType()));
+        if (known != null) {
+            summary.append("：").append(known.get(0));
+        }
+        if (location != null) {
+            summary.append("，出错位置 ").append(location);
+        }
+        return summary.toString();
+    }
+    
+    private static String simpleName(String type) {
+        return type.substring(type.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,108 @@
+package com.devinsight.analysis;
+
+/**
+ * 延迟直方图（HDR 风格的对数-线性分桶）
+ * <p>
+ * 以微秒为单位记录，每个 2 的幂区间再分为 64 个子桶，相对误差不超过 1/64（约 1.6%）；
+ * 桶数组大小固定，内存占用与样本数量无关。超出上限的值按上限记录。
+ */
+public class LatencyHistogram {
+    
+    /**
+     * 每个 2 的幂区间的子桶数（取一半，前 128 个值精确记录）
+     */
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 6;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final int SUB_BUCKET_MASK = (SUB_BUCKET_HALF_COUNT << 1) - 1;
+    
+    /**
+     * 可记录的最大值：2^40 微秒（约 12.7 天）
+     */
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    
+    private final long[] counts;
+    
+    private long totalCount;
+    
+    private double totalMicros;
+    
+    private long minValue = Long.MAX_VALUE;
+    
+    private long maxValue;
+    
+    public LatencyHistogram() {
+        counts = new long[countsIndex(MAX_VALUE) + 1];
+    }
+    
+    /**
+     * 记录一个延迟值
+     *
+     * @param millis 延迟（毫秒），负数忽略
+     */
+    public void recordMillis(double millis) {
+        if (millis < 0 || Double.isNaN(millis)) {
+            return;
+        }
+        long micros = (long) Math.min(millis * 1000, MAX_VALUE);
+        counts[countsIndex(micros)]++;
+        totalCount++;
+        totalMicros += micros;
+        minValue = Math.min(minValue, micros);
+        maxValue = Math.max(maxValue, micros);
+    }
+    
+    public long getTotalCount() {
+        return totalCount;
+    }
+    
+    public double getMeanMillis() {
+        return totalCount == 0 ? 0 : totalMicros / totalCount / 1000;
+    }
+    
+    public double getMinMillis() {
+        return totalCount == 0 ? 0 : minValue / 1000.0;
+    }
+    
+    public double getMaxMillis() {
+        return maxValue / 1000.0;
+    }
+    
+    /**
+     * 查询分位数
+     *
+     * @param percentile 百分位（0-100）
+     * @return 对应延迟（毫秒，取所在桶的中点）；没有样本时返回 0
+     */
+    public double getPercentileMillis(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                long value = Math.min(Math.max(midValue(i), minValue), maxValue);
+                return value / 1000.0;
+            }
+        }
+        return maxValue / 1000.0;
+    }
+    
+    private static int countsIndex(long value) {
+        int bucketIndex = 63 - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK) - SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + (subBucketIndex - SUB_BUCKET_HALF_COUNT);
+    }
+    
+    private static long midValue(int index) {
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        int subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucketIndex < 0) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+        long lowest = (long) subBucketIndex << bucketIndex;
+        return lowest + ((1L << bucketIndex) >> 1);
+    }
+}
@@ -0,0 +1,505 @@
+package com.devinsight.analysis;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 日志总结（流式单遍分析）
+ * <p>
+ * 从 Reader 逐行读取并在一遍扫描中完成统计，内存占用与日志大小无关：
+ * - 延迟分位数使用固定大小的对数-线性直方图 {@link LatencyHistogram}
+ * - 高频错误消息使用 Space-Saving 计数器 {@link SpaceSavingCounter}
+ * - 按分钟统计的时间桶最多保留 {@link #MAX_MINUTE_BUCKETS} 个（超出时丢弃最早的）
+ * - 单行超过 {@link #MAX_LINE_LENGTH} 个字符的部分直接丢弃
+ */
+@Component
+public class LogSummaryAnalyzer {
+    
+    /**
+     * 单行最大处理长度
+     */
+    private static final int MAX_LINE_LENGTH = 8192;
+    
+    /**
+     * 行首识别时间戳、日志级别的扫描范围
+     */
+    private static final int HEADER_SCAN_LENGTH = 128;
+    
+    /**
+     * 最多保留的分钟桶数（一天）
+     */
+    private static final int MAX_MINUTE_BUCKETS = 1440;
+    
+    /**
+     * Space-Saving 计数器容量与结果中返回的高频错误数
+     */
+    private static final int TOP_ERROR_CAPACITY = 200;
+    private static final int TOP_ERROR_COUNT = 10;
+    
+    /**
+     * 错误消息归一化后的最大长度
+     */
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 200;
+    
+    /**
+     * 异常窗口判定：分钟内至少有这么多错误 / 延迟样本才参与判定
+     */
+    private static final int MIN_ANOMALY_ERRORS = 5;
+    private static final int MIN_ANOMALY_LATENCY_SAMPLES = 5;
+    
+    private static final Pattern TIMESTAMP = Pattern.compile(
+            "(\\d{4}-\\d{2}-\\d{2})[ T](\\d{2}:\\d{2})");
+    private static final Pattern LEVEL = Pattern.compile(
+            "\\b(TRACE|DEBUG|INFO|WARN|WARNING|ERROR|FATAL)\\b");
+    private static final Pattern HTTP_REQUEST = Pattern.compile(
+            "\\b(?:GET|POST|PUT|DELETE|PATCH|HEAD|OPTIONS)\\s+/");
+    private static final Pattern HTTP_STATUS = Pattern.compile(
+            "(?:\\b(?:status|code)[=:]\\s*|\"\\s)([1-5]\\d{2})\\b");
+    private static final Pattern KEYED_LATENCY = Pattern.compile(
+            "(?i)\\b(?:latency|duration|elapsed|took|cost|rt|response_time)[=:\\s]\\s*(\\d+(?:\\.\\d+)?)\\s*(ms|s|us|µs)?\\b");
+    private static final Pattern MILLIS = Pattern.compile("\\b(\\d+(?:\\.\\d+)?)\\s?ms\\b");
+    
+    private static final Pattern THREAD_OR_BRACKET = Pattern.compile("^\\s*\\[[^\\]]*\\]\\s*");
+    private static final Pattern LOGGER_SEPARATOR = Pattern.compile("^[\\w.$]+\\s*(?:-|:)\\s+");
+    private static final Pattern UUID = Pattern.compile(
+            "\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b");
+    private static final Pattern HEX = Pattern.compile("\\b0x[0-9a-fA-F]+\\b|\\b[0-9a-fA-F]{16,}\\b");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    /**
+     * 分析日志
+     *
+     * @param inputData 日志文本
+     * @return 分析结果（JSON格式）
+     */
+    public String analyze(String inputData) {
+        try {
+            return analyze(new StringReader(inputData != null ? inputData : ""));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * 流式分析日志
+     *
+     * @param reader 日志输入（由调用方负责关闭）
+     * @return 分析结果（JSON格式）
+     */
+    public String analyze(Reader reader) throws IOException {
+        Summary summary = new Summary();
+        LineReader lines = new LineReader(reader);
+        String line;
+        while ((line = lines.next()) != null) {
+            summary.accept(line);
+        }
+        summary.truncatedLines = lines.truncatedLines;
+        try {
+            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(summary.toResult());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化分析结果失败", e);
+        }
+    }
+    
+    /**
+     * 单遍统计状态
+     */
+    private static class Summary {
+        
+        private final Matcher timestamp = TIMESTAMP.matcher("");
+        private final Matcher level = LEVEL.matcher("");
+        private final Matcher httpRequest = HTTP_REQUEST.matcher("");
+        private final Matcher httpStatus = HTTP_STATUS.matcher("");
+        private final Matcher keyedLatency = KEYED_LATENCY.matcher("");
+        private final Matcher millis = MILLIS.matcher("");
+        
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final SpaceSavingCounter topErrors = new SpaceSavingCounter(TOP_ERROR_CAPACITY);
+        private final TreeMap<String, MinuteBucket> minutes = new TreeMap<>();
+        private final Map<String, Long> levels = new LinkedHashMap<>();
+        
+        private long totalLines;
+        private long totalRequests;
+        private long errorCount;
+        private long warnCount;
+        private long serverErrorResponses;
+        private long droppedMinuteBuckets;
+        private long truncatedLines;
+        private String firstTimestamp;
+        private String lastTimestamp;
+        
+        /**
+         * 当前所在的分钟（续行如异常栈帧沿用上一条日志的时间）
+         */
+        private String currentMinute;
+        
+        void accept(String line) {
+            if (line.isBlank()) {
+                return;
+            }
+            totalLines++;
+            int headerEnd = Math.min(line.length(), HEADER_SCAN_LENGTH);
+            
+            timestamp.reset(line).region(0, headerEnd);
+            if (timestamp.find()) {
+                currentMinute = timestamp.group(1) + " " + timestamp.group(2);
+                if (firstTimestamp == null || currentMinute.compareTo(firstTimestamp) < 0) {
+                    firstTimestamp = currentMinute;
+                }
+                if (lastTimestamp == null || currentMinute.compareTo(lastTimestamp) > 0) {
+                    lastTimestamp = currentMinute;
+                }
+            }
+            MinuteBucket bucket = currentMinute != null ? bucket(currentMinute) : null;
+            if (bucket != null) {
+                bucket.lines++;
+            }
+            
+            String lineLevel = null;
+            level.reset(line).region(0, headerEnd);
+            if (level.find()) {
+                lineLevel = "WARNING".equals(level.group(1)) ? "WARN" : level.group(1);
+                levels.merge(lineLevel, 1L, Long::sum);
+            }
+            
+            boolean isRequest = httpRequest.reset(line).find();
+            boolean serverError = false;
+            if (httpStatus.reset(line).find()) {
+                isRequest = true;
+                serverError = httpStatus.group(1).charAt(0) == '5';
+            }
+            double latencyMillis = parseLatency(line, isRequest);
+            if (latencyMillis >= 0) {
+                isRequest = true;
+                latency.recordMillis(latencyMillis);
+                if (bucket != null) {
+                    bucket.latencyCount++;
+                    bucket.latencySum += latencyMillis;
+                }
+            }
+            if (isRequest) {
+                totalRequests++;
+                if (bucket != null) {
+                    bucket.requests++;
+                }
+            }
+            if (serverError) {
+                serverErrorResponses++;
+            }
+            
+            boolean error = "ERROR".equals(lineLevel) || "FATAL".equals(lineLevel);
+            if ("WARN".equals(lineLevel)) {
+                warnCount++;
+            }
+            if (error || serverError) {
+                errorCount++;
+                if (bucket != null) {
+                    bucket.errors++;
+                }
+                if (error) {
+                    topErrors.add(normalizeErrorMessage(line.substring(level.end())));
+                }
+            }
+        }
+        
+        private MinuteBucket bucket(String minute) {
+            MinuteBucket bucket = minutes.get(minute);
+            if (bucket == null) {
+                if (minutes.size() >= MAX_MINUTE_BUCKETS) {
+                    if (minute.compareTo(minutes.firstKey()) < 0) {
+                        droppedMinuteBuckets++;
+                        return null;
+                    }
+                    minutes.pollFirstEntry();
+                    droppedMinuteBuckets++;
+                }
+                bucket = new MinuteBucket();
+                minutes.put(minute, bucket);
+            }
+            return bucket;
+        }
+        
+        /**
+         * 解析行中的延迟（毫秒），没有返回 -1
+         * 优先匹配 latency=、took 等带键名的值；已识别为 HTTP 请求的行再匹配带 ms 单位的数字，
+         * 避免把 "timeout after 3000 ms" 之类的错误消息当作请求延迟
+         */
+        private double parseLatency(String line, boolean httpLine) {
+            if (keyedLatency.reset(line).find()) {
+                double value = Double.parseDouble(keyedLatency.group(1));
+                String unit = keyedLatency.group(2);
+                if (unit == null || "ms".equals(unit)) {
+                    return value;
+                }
+                return "s".equals(unit) ? value * 1000 : value / 1000;
+            }
+            if (httpLine && millis.reset(line).find()) {
+                return Double.parseDouble(millis.group(1));
+            }
+            return -1;
+        }
+        
+        Map<String, Object> toResult() {
+            double errorRate = totalRequests > 0
+                    ? (double) Math.min(errorCount, totalRequests) / totalRequests
+                    : (totalLines > 0 ? (double) errorCount / totalLines : 0);
+            
+            Map<String, Object> latencyMetrics = new LinkedHashMap<>();
+            latencyMetrics.put("count", latency.getTotalCount());
+            latencyMetrics.put("avgMs", round(latency.getMeanMillis()));
+            latencyMetrics.put("p50Ms", round(latency.getPercentileMillis(50)));
+            latencyMetrics.put("p90Ms", round(latency.getPercentileMillis(90)));
+            latencyMetrics.put("p99Ms", round(latency.getPercentileMillis(99)));
+            latencyMetrics.put("maxMs", round(latency.getMaxMillis()));
+            
+            Map<String, Object> keyMetrics = new LinkedHashMap<>();
+            keyMetrics.put("totalLines", totalLines);
+            keyMetrics.put("totalRequests", totalRequests);
+            keyMetrics.put("errorCount", errorCount);
+            keyMetrics.put("warnCount", warnCount);
+            keyMetrics.put("serverErrorResponses", serverErrorResponses);
+            keyMetrics.put("errorRate", round(errorRate * 100) + "%");
+            keyMetrics.put("latency", latencyMetrics);
+            
+            List<Map<String, Object>> errors = new ArrayList<>();
+            for (SpaceSavingCounter.Entry entry : topErrors.top(TOP_ERROR_COUNT)) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("message", entry.getItem());
+                item.put("count", entry.getCount());
+                item.put("maxOverestimate", entry.getError());
+                errors.add(item);
+            }
+            
+            List<String> anomalies = findAnomalies();
+            
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("type", "LOG_SUMMARY");
+            result.put("summary", buildSummary(errorRate, anomalies.size()));
+            if (firstTimestamp != null) {
+                result.put("timeRange", firstTimestamp + " ~ " + lastTimestamp);
+            }
+            result.put("keyMetrics", keyMetrics);
+            result.put("levels", levels);
+            result.put("topErrors", errors);
+            result.put("anomalies", anomalies);
+            result.put("recommendations", buildRecommendations(errorRate, anomalies.isEmpty(), errors));
+            if (truncatedLines > 0 || droppedMinuteBuckets > 0) {
+                Map<String, Object> limits = new LinkedHashMap<>();
+                limits.put("truncatedLines", truncatedLines);
+                limits.put("droppedMinuteBuckets", droppedMinuteBuckets);
+                result.put("limits", limits);
+            }
+            result.put("analyzedAt", LocalDateTime.now().toString());
+            return result;
+        }
+        
+        /**
+         * 找出异常时间窗口：错误数超过分钟均值 + 3 倍标准差，或平均延迟超过整体均值 2 倍的分钟，
+         * 连续的异常分钟合并为一个窗口
+         */
+        private List<String> findAnomalies() {
+            List<String> windows = new ArrayList<>();
+            if (minutes.size() < 2) {
+                return windows;
+            }
+            double meanErrors = 0;
+            for (MinuteBucket bucket : minutes.values()) {
+                meanErrors += bucket.errors;
+            }
+            meanErrors /= minutes.size();
+            double variance = 0;
+            for (MinuteBucket bucket : minutes.values()) {
+                variance += (bucket.errors - meanErrors) * (bucket.errors - meanErrors);
+            }
+            double errorThreshold = Math.max(MIN_ANOMALY_ERRORS, meanErrors + 3 * Math.sqrt(variance / minutes.size()));
+            double latencyThreshold = latency.getMeanMillis() * 2;
+            
+            String windowStart = null;
+            String windowEnd = null;
+            String reason = null;
+            for (Map.Entry<String, MinuteBucket> entry : minutes.entrySet()) {
+                MinuteBucket bucket = entry.getValue();
+                String minuteReason = null;
+                if (bucket.errors >= errorThreshold) {
+                    minuteReason = "错误数激增";
+                } else if (bucket.latencyCount >= MIN_ANOMALY_LATENCY_SAMPLES
+                        && bucket.latencySum / bucket.latencyCount > latencyThreshold) {
+                    minuteReason = "响应时间上升";
+                }
+                if (minuteReason != null && windowStart != null && isNextMinute(windowEnd, entry.getKey())) {
+                    windowEnd = entry.getKey();
+                    continue;
+                }
+                if (windowStart != null) {
+                    windows.add(formatWindow(windowStart, windowEnd, reason));
+                    windowStart = null;
+                }
+                if (minuteReason != null) {
+                    windowStart = entry.getKey();
+                    windowEnd = entry.getKey();
+                    reason = minuteReason;
+                }
+            }
+            if (windowStart != null) {
+                windows.add(formatWindow(windowStart, windowEnd, reason));
+            }
+            return windows;
+        }
+        
+        private boolean isNextMinute(String previous, String current) {
+            try {
+                LocalDateTime prev = LocalDateTime.parse(previous.replace(' ', 'T'));
+                return prev.plusMinutes(1).equals(LocalDateTime.parse(current.replace(' ', 'T')));
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+        
+        private String formatWindow(String start, String end, String reason) {
+            String endTime = end.substring(end.indexOf(' ') + 1);
+            return start.equals(end)
+                    ? start + " " + reason
+                    : start + "-" + endTime + " 期间" + reason;
+        }
+        
+        private String buildSummary(double errorRate, int anomalyCount) {
+            StringBuilder summary = new StringBuilder();
+            summary.append("共 ").append(totalLines).append(" 行日志");
+            if (totalRequests > 0) {
+                summary.append("，").append(totalRequests).append(" 个请求");
+            }
+            summary.append("，错误 ").append(errorCount).append(" 条（").append(round(errorRate * 100)).append("%）");
+            if (latency.getTotalCount() > 0) {
+                summary.append("，平均响应时间 ").append(round(latency.getMeanMillis())).append("ms")
+                        .append("，P99 ").append(round(latency.getPercentileMillis(99))).append("ms");
+            }
+            if (anomalyCount > 0) {
+                summary.append("，发现 ").append(anomalyCount).append(" 个异常时间窗口");
+            }
+            return summary.toString();
+        }
+        
+        private List<String> buildRecommendations(double errorRate, boolean noAnomaly, List<Map<String, Object>> errors) {
+            List<String> recommendations = new ArrayList<>();
+            if (!errors.isEmpty()) {
+                recommendations.add("优先处理出现次数最多的错误: " + errors.get(0).get("message"));
+            }
+            if (errorRate > 0.05) {
+                recommendations.add("错误率超过 5%，建议排查近期发布和依赖服务状态");
+            }
+            if (latency.getTotalCount() > 0 && latency.getPercentileMillis(99) > latency.getPercentileMillis(50) * 10) {
+                recommendations.add("P99 延迟远高于中位数，建议排查慢查询、锁等待和 GC 停顿");
+            }
+            if (!noAnomaly) {
+                recommendations.add("结合异常时间窗口排查对应时段的流量和变更");
+            }
+            if (recommendations.isEmpty()) {
+                recommendations.add("未发现明显问题");
+            }
+            return recommendations;
+        }
+    }
+    
+    /**
+     * 错误消息归一化：去掉线程名、logger 名以及 UUID、十六进制、数字等可变部分，使同类错误聚合到一起
+     */
+    static String normalizeErrorMessage(String message) {
+        String normalized = THREAD_OR_BRACKET.matcher(message).replaceFirst("");
+        normalized = LOGGER_SEPARATOR.matcher(normalized).replaceFirst("");
+        normalized = UUID.matcher(normalized).replaceAll("<uuid>");
+        normalized = HEX.matcher(normalized).replaceAll("<hex>");
+        normalized = NUMBER.matcher(normalized).replaceAll("<n>");
+        normalized = normalized.strip();
+        return normalized.length() > MAX_ERROR_MESSAGE_LENGTH
+                ? normalized.substring(0, MAX_ERROR_MESSAGE_LENGTH)
+                : normalized;
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+    
+    private static class MinuteBucket {
+        private long lines;
+        private long requests;
+        private long errors;
+        private long latencyCount;
+        private double latencySum;
+    }
+    
+    /**
+     * 按行读取，单行超过 MAX_LINE_LENGTH 的部分丢弃，保证单行内存有界
+     */
+    private static class LineReader {
+        
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean eof;
+        private long truncatedLines;
+        
+        LineReader(Reader reader) {
+            this.reader = reader;
+        }
+        
+        String next() throws IOException {
+            line.setLength(0);
+            boolean truncated = false;
+            boolean readAny = false;
+            while (true) {
+                if (position >= limit) {
+                    if (eof) {
+                        break;
+                    }
+                    limit = reader.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        eof = true;
+                        limit = 0;
+                        break;
+                    }
+                }
+                char c = buffer[position++];
+                readAny = true;
+                if (c == '\n') {
+                    break;
+                }
+                if (c == '\r') {
+                    continue;
+                }
+                if (line.length() < MAX_LINE_LENGTH) {
+                    line.append(c);
+                } else {
+                    truncated = true;
+                }
+            }
+            if (!readAny) {
+                return null;
+            }
+            if (truncated) {
+                truncatedLines++;
+            }
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.devinsight.analysis;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 解析后的 Java 异常堆栈
+ */
+@Data
+public class ParsedStackTrace {
+    
+    /**
+     * 最外层异常类型（全限定名）
+     */
+    private String exceptionType;
+    
+    /**
+     * 最外层异常消息
+     */
+    private String message;
+    
+    /**
+     * 根因异常类型（最后一个 Caused by，没有则与最外层相同）
+     */
+    private String rootCauseType;
+    
+    /**
+     * 根因异常消息
+     */
+    private String rootCauseMessage;
+    
+    /**
+     * 最外层异常的归一化栈帧（类名.方法名，已去掉行号、lambda 序号和生成类后缀）
+     */
+    private List<String> frames = new ArrayList<>();
+    
+    /**
+     * 根因异常的归一化栈帧
+     */
+    private List<String> rootCauseFrames = new ArrayList<>();
+    
+    /**
+     * 稳定指纹：同一代码路径上的同类异常得到相同指纹，与行号、对象地址、消息中的变量无关
+     */
+    private String fingerprint;
+    
+    /**
+     * 第一个非 JDK / 框架的栈帧，通常就是出问题的业务代码
+     */
+    public String getTopApplicationFrame() {
+        List<String> source = !rootCauseFrames.isEmpty() ? rootCauseFrames : frames;
+        for (String frame : source) {
+            if (!StackTraceFingerprinter.isFrameworkFrame(frame)) {
+                return frame;
+            }
+        }
+        return source.isEmpty() ? null : source.get(0);
+    }
+}
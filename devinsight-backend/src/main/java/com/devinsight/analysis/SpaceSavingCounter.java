@@ -0,0 +1,84 @@
+package com.devinsight.analysis;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Top-K 频次统计（Space-Saving 算法）
+ * <p>
+ * 最多保留 capacity 个计数器；新元素到来且计数器已满时替换计数最小的元素，
+ * 新计数 = 被替换者计数 + 1，并记录该值为误差上界。出现次数超过 N / capacity 的元素一定会被保留。
+ */
+public class SpaceSavingCounter {
+    
+    private final int capacity;
+    
+    private final Map<String, Entry> entries;
+    
+    public SpaceSavingCounter(int capacity) {
+        this.capacity = capacity;
+        this.entries = new HashMap<>(capacity * 2);
+    }
+    
+    public void add(String item) {
+        Entry entry = entries.get(item);
+        if (entry != null) {
+            entry.count++;
+            return;
+        }
+        if (entries.size() < capacity) {
+            entries.put(item, new Entry(item, 1, 0));
+            return;
+        }
+        Entry min = null;
+        for (Entry candidate : entries.values()) {
+            if (min == null || candidate.count < min.count) {
+                min = candidate;
+            }
+        }
+        entries.remove(min.item);
+        entries.put(item, new Entry(item, min.count + 1, min.count));
+    }
+    
+    /**
+     * 按计数降序返回前 k 个元素
+     */
+    public List<Entry> top(int k) {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparingLong(Entry::getCount).reversed());
+        return sorted.subList(0, Math.min(k, sorted.size()));
+    }
+    
+    public static class Entry {
+        
+        private final String item;
+        
+        private long count;
+        
+        /**
+         * 计数的最大高估值
+         */
+        private final long error;
+        
+        Entry(String item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+        
+        public String getItem() {
+            return item;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.devinsight.analysis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Java 异常堆栈解析与指纹计算
+ * <p>
+ * 指纹只取异常类型和归一化后的栈帧：去掉行号、lambda 序号、动态代理 / CGLIB 等生成类后缀、
+ * 匿名内部类序号以及反射调用帧，使同一代码路径在不同版本、不同 JVM 实例上得到相同的指纹。
+ * 没有栈帧时退化为异常类型 + 去掉数字和引号内容的消息。
+ */
+@Component
+public class StackTraceFingerprinter {
+    
+    /**
+     * 上传的大输入只解析前这么多字符（完整堆栈不会超过这个长度）
+     */
+    public static final int MAX_UPLOAD_PARSE_CHARS = 1024 * 1024;
+    
+    /**
+     * 每个异常参与指纹计算的栈帧数
+     */
+    private static final int FINGERPRINT_FRAMES = 10;
+    
+    /**
+     * 根因异常参与指纹计算的栈帧数
+     */
+    private static final int ROOT_CAUSE_FINGERPRINT_FRAMES = 5;
+    
+    /**
+     * 每个异常最多保留的栈帧数
+     */
+    private static final int MAX_FRAMES = 20;
+    
+    private static final Pattern HEADER = Pattern.compile(
+            "(?<![\\w$.])((?:[a-zA-Z_$][\\w$]*\\.)*[A-Z][\\w$]*(?:Exception|Error|Throwable))(?::\\s*(.*))?");
+    
+    private static final Pattern FRAME = Pattern.compile("^at\\s+([\\w$.<>/-]+)\\(([^)]*)\\)");
+    
+    private static final Pattern HIDDEN_CLASS_SUFFIX = Pattern.compile("/0x[0-9a-fA-F]+");
+    private static final Pattern LAMBDA_METHOD = Pattern.compile("lambda\\$([\\w]+?)\\$\\d+");
+    private static final Pattern LAMBDA_CLASS = Pattern.compile("\\$\\$Lambda\\$\\d+");
+    private static final Pattern GENERATED_CLASS = Pattern.compile("\\$\\$[A-Za-z]*\\$\\$[0-9a-fA-F]+");
+    private static final Pattern HIBERNATE_PROXY = Pattern.compile("\\$HibernateProxy\\$\\w+");
+    private static final Pattern BYTE_BUDDY = Pattern.compile("\\$ByteBuddy\\$\\w+");
+    private static final Pattern JDK_PROXY = Pattern.compile("\\$Proxy\\d+");
+    private static final Pattern METHOD_ACCESSOR = Pattern.compile("(GeneratedMethodAccessor|GeneratedConstructorAccessor)\\d+");
+    private static final Pattern ANONYMOUS_CLASS = Pattern.compile("\\$\\d+(?=[.$])");
+    
+    private static final Pattern MESSAGE_VARIABLES = Pattern.compile(
+            "'[^']*'|\"[^\"]*\"|0x[0-9a-fA-F]+|[0-9a-fA-F]{8}-[0-9a-fA-F-]{27}|\\d+");
+    
+    private static final String[] REFLECTION_PREFIXES = {
+            "jdk.internal.reflect.", "sun.reflect.", "java.lang.reflect.", "jdk.proxy",
+            "GeneratedMethodAccessor", "GeneratedConstructorAccessor"
+    };
+    
+    private static final String[] FRAMEWORK_PREFIXES = {
+            "java.", "javax.", "jakarta.", "jdk.", "sun.", "com.sun.", "org.springframework.",
+            "org.apache.", "org.mybatis.", "com.baomidou.", "org.hibernate.", "org.postgresql.",
+            "com.zaxxer.", "io.netty.", "reactor.", "kotlin.", "scala."
+    };
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    /**
+     * 解析输入中的异常堆栈
+     *
+     * @param inputData 原始输入（纯文本堆栈，或包含堆栈字段的 JSON）
+     * @return 解析结果；未找到任何异常时返回 null
+     */
+    public ParsedStackTrace parse(String inputData) {
+        if (inputData == null || inputData.isBlank()) {
+            return null;
+        }
+        String text = extractText(inputData);
+        
+        ParsedStackTrace result = null;
+        List<String> currentFrames = null;
+        boolean inSuppressed = false;
+        for (String rawLine : text.split("\\r?\\n")) {
+            String line = rawLine.strip();
+            if (line.isEmpty() || line.startsWith("...")) {
+                continue;
+            }
+            
+            Matcher frame = FRAME.matcher(line);
+            if (frame.find()) {
+                if (currentFrames != null && !inSuppressed && currentFrames.size() < MAX_FRAMES) {
+                    String normalized = normalizeFrame(frame.group(1));
+                    if (!isReflectionFrame(normalized)) {
+                        currentFrames.add(normalized);
+                    }
+                }
+                continue;
+            }
+            
+            boolean causedBy = line.startsWith("Caused by:");
+            if (line.startsWith("Suppressed:")) {
+                inSuppressed = true;
+                continue;
+            }
+            if (result != null && !causedBy) {
+                continue;
+            }
+            
+            Matcher header = HEADER.matcher(line);
+            if (!header.find()) {
+                continue;
+            }
+            String type = header.group(1);
+            String message = header.group(2) != null
+                    ? header.group(2).strip()
+                    : line.substring(header.end()).strip();
+            inSuppressed = false;
+            if (result == null) {
+                result = new ParsedStackTrace();
+                result.setExceptionType(type);
+                result.setMessage(message);
+                currentFrames = result.getFrames();
+            } else {
+                result.getRootCauseFrames().clear();
+                currentFrames = result.getRootCauseFrames();
+            }
+            result.setRootCauseType(type);
+            result.setRootCauseMessage(message);
+        }
+        
+        if (result != null) {
+            result.setFingerprint(fingerprint(result));
+        }
+        return result;
+    }
+    
+    /**
+     * 是否为 JDK / 常见框架的栈帧
+     */
+    static boolean isFrameworkFrame(String frame) {
+        for (String prefix : FRAMEWORK_PREFIXES) {
+            if (frame.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 归一化栈帧：去掉模块 / 类加载器前缀、隐藏类地址、lambda 和匿名类序号、生成类后缀
+     */
+    static String normalizeFrame(String frame) {
+        String normalized = HIDDEN_CLASS_SUFFIX.matcher(frame).replaceAll("");
+        int slash = normalized.lastIndexOf('/');
+        if (slash >= 0) {
+            normalized = normalized.substring(slash + 1);
+        }
+        normalized = LAMBDA_METHOD.matcher(normalized).replaceAll("lambda\\$$1");
+        normalized = LAMBDA_CLASS.matcher(normalized).replaceAll("\\$\\$Lambda");
+        normalized = GENERATED_CLASS.matcher(normalized).replaceAll("");
+        normalized = HIBERNATE_PROXY.matcher(normalized).replaceAll("");
+        normalized = BYTE_BUDDY.matcher(normalized).replaceAll("");
+        normalized = JDK_PROXY.matcher(normalized).replaceAll("\\$Proxy");
+        normalized = METHOD_ACCESSOR.matcher(normalized).replaceAll("$1");
+        normalized = ANONYMOUS_CLASS.matcher(normalized).replaceAll("\\$");
+        return normalized;
+    }
+    
+    private boolean isReflectionFrame(String frame) {
+        for (String prefix : REFLECTION_PREFIXES) {
+            if (frame.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 输入为 JSON 时拼接其中所有字符串字段（堆栈通常放在 exception / stackTrace 等字段中）
+     */
+    private String extractText(String inputData) {
+        String trimmed = inputData.strip();
+        if (!trimmed.startsWith("{") && !trimmed.startsWith("[")) {
+            return inputData;
+        }
+        try {
+            JsonNode root = objectMapper.readTree(trimmed);
+            StringBuilder text = new StringBuilder();
+            collectText(root, text);
+            return text.toString();
+        } catch (Exception e) {
+            return inputData;
+        }
+    }
+    
+    private void collectText(JsonNode node, StringBuilder text) {
+        if (node.isTextual()) {
+            text.append(node.asText()).append('\n');
+        } else if (node.isContainerNode()) {
+            node.forEach(child -> collectText(child, text));
+        }
+    }
+    
+    private String fingerprint(ParsedStackTrace trace) {
+        StringBuilder source = new StringBuilder(trace.getExceptionType()).append('\n');
+        if (trace.getFrames().isEmpty() && trace.getRootCauseFrames().isEmpty()) {
+            // 没有栈帧：用去掉变量部分的消息区分
+            String message = trace.getMessage() != null ? trace.getMessage() : "";
+            source.append(MESSAGE_VARIABLES.matcher(message).replaceAll("?"));
+        } else {
+            trace.getFrames().stream().limit(FINGERPRINT_FRAMES)
+                    .forEach(frame -> source.append(frame).append('\n'));
+        }
+        if (!trace.getRootCauseType().equals(trace.getExceptionType()) || !trace.getRootCauseFrames().isEmpty()) {
+            source.append("caused by ").append(trace.getRootCauseType()).append('\n');
+            trace.getRootCauseFrames().stream().limit(ROOT_CAUSE_FINGERPRINT_FRAMES)
+                    .forEach(frame -> source.append(frame).append('\n'));
+        }
+        return sha256(source.toString());
+    }
+    
+    private String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.devinsight.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * AI 任务执行线程池配置
+ * 交互通道与批量通道各自使用有界线程池 + 有界队列，任务由 AiTaskScheduler 抢占后投递到这里并发执行
+ */
+@Configuration
+public class TaskExecutorConfig {
+
+    @Value("${task.executor.interactive.pool-size:4}")
+    private int interactivePoolSize;
+
+    @Value("${task.executor.interactive.queue-capacity:8}")
+    private int interactiveQueueCapacity;
+
+    @Value("${task.executor.batch.pool-size:8}")
+    private int batchPoolSize;
+
+    @Value("${task.executor.batch.queue-capacity:32}")
+    private int batchQueueCapacity;
+
+    @Value("${task.executor.completion.pool-size:4}")
+    private int completionPoolSize;
+
+    @Bean(name = "aiInteractiveTaskExecutor")
+    public ThreadPoolTaskExecutor aiInteractiveTaskExecutor() {
+        return buildExecutor("ai-task-interactive-", interactivePoolSize, interactiveQueueCapacity);
+    }
+
+    @Bean(name = "aiBatchTaskExecutor")
+    public ThreadPoolTaskExecutor aiBatchTaskExecutor() {
+        return buildExecutor("ai-task-batch-", batchPoolSize, batchQueueCapacity);
+    }
+
+    /**
+     * 任务完成处理线程池：AI 服务响应后的结果压缩、写库和缓存更新在这里执行，不占用 HTTP 客户端的 I/O 线程
+     * 队列不设上限：排队的只有本节点已抢占、正在结束的任务，数量受通道许可和租约约束，不能拒绝
+     */
+    @Bean(name = "aiTaskCompletionExecutor")
+    public ThreadPoolTaskExecutor aiTaskCompletionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(completionPoolSize);
+        executor.setMaxPoolSize(completionPoolSize);
+        executor.setThreadNamePrefix("ai-task-completion-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    private ThreadPoolTaskExecutor buildExecutor(String threadNamePrefix, int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        // 队列满时直接拒绝，由调度器把任务退回 pending
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        // 停机时等待正在执行的任务完成
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,65 @@
+package com.devinsight.config;
+
+import com.devinsight.enums.TaskType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 任务重试策略配置
+ * task.retry.defaults 为默认策略，task.retry.policies.&lt;TaskType&gt; 可按任务类型覆盖
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "task.retry")
+public class TaskRetryProperties {
+    
+    /**
+     * 默认重试策略
+     */
+    private Policy defaults = new Policy();
+    
+    /**
+     * 按任务类型覆盖的重试策略
+     */
+    private Map<TaskType, Policy> policies = new EnumMap<>(TaskType.class);
+    
+    /**
+     * 获取任务类型对应的重试策略
+     */
+    public Policy getPolicy(TaskType taskType) {
+        return policies.getOrDefault(taskType, defaults);
+    }
+    
+    @Data
+    public static class Policy {
+        
+        /**
+         * 最大尝试次数（含首次执行），用完后进入死信
+         */
+        private int maxAttempts = 3;
+        
+        /**
+         * 首次重试延迟（毫秒）
+         */
+        private long initialDelay = 1000;
+        
+        /**
+         * 退避倍数
+         */
+        private double multiplier = 2.0;
+        
+        /**
+         * 最大重试延迟（毫秒）
+         */
+        private long maxDelay = 60000;
+        
+        /**
+         * 抖动比例（0-1），实际延迟在 [delay × (1 - jitter), delay × (1 + jitter)] 之间随机
+         */
+        private double jitter = 0.2;
+    }
+}
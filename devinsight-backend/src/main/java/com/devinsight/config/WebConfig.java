@@ -1,8 +1,11 @@
 package com.devinsight.config;
 
+import com.devinsight.enums.TaskStatus;
 import com.devinsight.interceptor.JwtAuthInterceptor;
+import com.devinsight.interceptor.TracingInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -12,8 +15,14 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private JwtAuthInterceptor jwtAuthInterceptor;
     
+    @Autowired
+    private TracingInterceptor tracingInterceptor;
+    
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        // 先于认证执行，认证失败的请求也会记录 span
+        registry.addInterceptor(tracingInterceptor)
+                .addPathPatterns("/api/**");
         registry.addInterceptor(jwtAuthInterceptor)
                 .addPathPatterns("/api/**")
                 .excludePathPatterns(
@@ -22,4 +31,10 @@ public class WebConfig implements WebMvcConfigurer {
                         "/health"
                 );
     }
+    
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        // 请求参数中的任务状态使用与 JSON 一致的小写值（如 status=pending）
+        registry.addConverter(String.class, TaskStatus.class, TaskStatus::fromValue);
+    }
 }
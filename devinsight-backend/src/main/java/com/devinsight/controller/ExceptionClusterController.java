@@ -0,0 +1,45 @@
+package com.devinsight.controller;
+
+import com.devinsight.service.ExceptionClusterService;
+import com.devinsight.vo.ExceptionClusterVO;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 异常聚类控制器
+ */
+@RestController
+@RequestMapping("/api/projects/{projectId}/exceptions")
+public class ExceptionClusterController {
+    
+    @Autowired
+    private ExceptionClusterService clusterService;
+    
+    /**
+     * 查询项目中出现次数最多的异常
+     *
+     * @param projectId   项目ID
+     * @param limit       返回数量（最多100）
+     * @param httpRequest HTTP请求
+     * @return 异常聚类列表
+     */
+    @GetMapping("/top")
+    public ResponseEntity<Map<String, Object>> getTopExceptions(@PathVariable Long projectId,
+                                                                  @RequestParam(defaultValue = "20") int limit,
+                                                                  HttpServletRequest httpRequest) {
+        Long userId = (Long) httpRequest.getAttribute("userId");
+        List<ExceptionClusterVO> clusters = clusterService.getTopExceptions(projectId, userId, limit);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 200);
+        result.put("message", "查询成功");
+        result.put("data", clusters);
+        return ResponseEntity.ok(result);
+    }
+}
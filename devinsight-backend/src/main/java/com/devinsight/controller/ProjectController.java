@@ -2,6 +2,7 @@ package com.devinsight.controller;
 
 import com.devinsight.dto.ProjectCreateRequest;
 import com.devinsight.service.ProjectService;
+import com.devinsight.vo.CursorPage;
 import com.devinsight.vo.ProjectVO;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
@@ -10,7 +11,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -34,10 +34,19 @@ public class ProjectController {
         return ResponseEntity.ok(result);
     }
     
+    /**
+     * 分页查询我参与的项目
+     *
+     * @param cursor 分页游标（取上一页返回的 nextCursor，首页不传）
+     * @param limit  每页数量（最多100）
+     */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getMyProjects(HttpServletRequest request) {
+    public ResponseEntity<Map<String, Object>> getMyProjects(
+            HttpServletRequest request,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
         Long userId = (Long) request.getAttribute("userId");
-        List<ProjectVO> projects = projectService.getMyProjects(userId);
+        CursorPage<ProjectVO> projects = projectService.getMyProjects(userId, cursor, limit);
         
         Map<String, Object> result = new HashMap<>();
         result.put("code", 200);
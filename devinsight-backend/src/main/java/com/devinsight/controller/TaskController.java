@@ -1,15 +1,29 @@
 package com.devinsight.controller;
 
+import com.devinsight.dto.TaskBatchSubmitRequest;
 import com.devinsight.dto.TaskSubmitRequest;
+import com.devinsight.enums.TaskStatus;
+import com.devinsight.enums.TaskType;
+import com.devinsight.service.TaskEventService;
 import com.devinsight.service.TaskService;
+import com.devinsight.vo.CursorPage;
+import com.devinsight.vo.TaskSummaryVO;
+import com.devinsight.vo.TaskTraceVO;
 import com.devinsight.vo.TaskVO;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +39,9 @@ public class TaskController {
     @Autowired
     private TaskService taskService;
     
+    @Autowired
+    private TaskEventService taskEventService;
+    
     /**
      * 提交任务
      *
@@ -45,6 +62,55 @@ public class TaskController {
         return ResponseEntity.ok(result);
     }
     
+    /**
+     * 批量提交任务
+     *
+     * @param request     批量提交请求
+     * @param httpRequest HTTP请求
+     * @return 任务ID列表（与请求顺序一致）
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> submitTasks(@Valid @RequestBody TaskBatchSubmitRequest request,
+                                                             HttpServletRequest httpRequest) {
+        Long userId = (Long) httpRequest.getAttribute("userId");
+        List<Long> taskIds = taskService.submitTasks(request, userId);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 200);
+        result.put("message", "任务提交成功");
+        result.put("data", taskIds);
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * 以上传方式提交任务（适用于大日志 / 堆栈）
+     * 请求体为原始文本，支持分块传输；带 Content-Encoding: gzip 或 Content-Type: application/gzip 时按 gzip 解压
+     *
+     * @param projectId   项目ID
+     * @param taskType    任务类型
+     * @param priority    优先级（可选，0-9）
+     * @param httpRequest HTTP请求
+     * @return 任务ID
+     */
+    @PostMapping(value = "/upload", consumes = {MediaType.TEXT_PLAIN_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE, "application/gzip"})
+    public ResponseEntity<Map<String, Object>> uploadTask(@RequestParam Long projectId,
+                                                            @RequestParam TaskType taskType,
+                                                            @RequestParam(required = false) Integer priority,
+                                                            HttpServletRequest httpRequest) throws IOException {
+        Long userId = (Long) httpRequest.getAttribute("userId");
+        boolean gzip = "gzip".equalsIgnoreCase(httpRequest.getHeader(HttpHeaders.CONTENT_ENCODING))
+                || "application/gzip".equalsIgnoreCase(httpRequest.getContentType());
+        Long taskId = taskService.submitUpload(projectId, taskType, priority,
+                httpRequest.getInputStream(), gzip, userId);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 200);
+        result.put("message", "任务提交成功");
+        result.put("data", taskId);
+        return ResponseEntity.ok(result);
+    }
+    
     /**
      * 查询任务详情
      *
@@ -65,17 +131,102 @@ public class TaskController {
     }
     
     /**
-     * 查询项目下的任务列表
+     * 查询任务执行时间线（排队、抢占、AI 服务调用、结果序列化和写回各阶段耗时）
+     *
+     * @param id          任务ID
+     * @param httpRequest HTTP请求
+     * @return 时间线
+     */
+    @GetMapping("/{id}/trace")
+    public ResponseEntity<Map<String, Object>> getTaskTrace(@PathVariable Long id,
+                                                            HttpServletRequest httpRequest) {
+        Long userId = (Long) httpRequest.getAttribute("userId");
+        TaskTraceVO trace = taskService.getTaskTrace(id, userId);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 200);
+        result.put("data", trace);
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * 订阅任务状态变化（Server-Sent Events）
+     * 连接建立后先推送当前状态，之后每次状态变化推送一个 status 事件，任务进入终态后服务端关闭连接
+     *
+     * @param id          任务ID
+     * @param httpRequest HTTP请求
+     * @return SSE 连接
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeTaskEvents(@PathVariable Long id, HttpServletRequest httpRequest) {
+        Long userId = (Long) httpRequest.getAttribute("userId");
+        return taskEventService.subscribe(id, userId);
+    }
+    
+    /**
+     * 等待任务状态变化（长轮询）
+     * 状态与 status 参数不同时立即返回，否则最多等待 timeout 毫秒
+     *
+     * @param id          任务ID
+     * @param status      客户端已知的状态（可选，不传则等待当前状态发生变化）
+     * @param timeout     最长等待时间（毫秒，最多60000）
+     * @param httpRequest HTTP请求
+     * @return 当前状态及是否发生变化
+     */
+    @GetMapping("/{id}/wait")
+    public DeferredResult<Map<String, Object>> waitForTask(@PathVariable Long id,
+                                                           @RequestParam(required = false) TaskStatus status,
+                                                           @RequestParam(defaultValue = "30000") long timeout,
+                                                           HttpServletRequest httpRequest) {
+        Long userId = (Long) httpRequest.getAttribute("userId");
+        return taskEventService.waitForChange(id, userId, status, timeout);
+    }
+    
+    /**
+     * 获取任务输入或结果原文
+     * 支持 HTTP Range 请求（如 Range: bytes=0-1048575）分段读取大内容
+     *
+     * @param id          任务ID
+     * @param part        input 或 result
+     * @param httpRequest HTTP请求
+     * @return 原文内容
+     */
+    @GetMapping("/{id}/payload/{part}")
+    public ResponseEntity<Resource> getTaskPayload(@PathVariable Long id,
+                                                   @PathVariable String part,
+                                                   HttpServletRequest httpRequest) {
+        Long userId = (Long) httpRequest.getAttribute("userId");
+        Resource payload = taskService.getTaskPayload(id, part, userId);
+        
+        MediaType contentType = TaskService.PAYLOAD_RESULT.equals(part)
+                ? MediaType.APPLICATION_JSON
+                : new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(payload);
+    }
+    
+    /**
+     * 分页查询项目下的任务列表
      *
      * @param projectId   项目ID
+     * @param status      状态过滤（可选，如 pending）
+     * @param taskType    类型过滤（可选）
+     * @param cursor      分页游标（取上一页返回的 nextCursor，首页不传）
+     * @param limit       每页数量（最多100）
      * @param httpRequest HTTP请求
-     * @return 任务列表
+     * @return 任务分页（摘要，完整内容见任务详情）
      */
     @GetMapping("/project/{projectId}")
     public ResponseEntity<Map<String, Object>> getProjectTasks(@PathVariable Long projectId,
+                                                                 @RequestParam(required = false) TaskStatus status,
+                                                                 @RequestParam(required = false) TaskType taskType,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "20") int limit,
                                                                  HttpServletRequest httpRequest) {
         Long userId = (Long) httpRequest.getAttribute("userId");
-        List<TaskVO> tasks = taskService.getProjectTasks(projectId, userId);
+        CursorPage<TaskSummaryVO> tasks = taskService.getProjectTasks(projectId, userId, status, taskType, cursor, limit);
         
         Map<String, Object> result = new HashMap<>();
         result.put("code", 200);
@@ -84,15 +235,23 @@ public class TaskController {
     }
     
     /**
-     * 查询我的任务列表
+     * 分页查询我的任务列表
      *
+     * @param status      状态过滤（可选，如 pending）
+     * @param taskType    类型过滤（可选）
+     * @param cursor      分页游标（取上一页返回的 nextCursor，首页不传）
+     * @param limit       每页数量（最多100）
      * @param httpRequest HTTP请求
-     * @return 任务列表
+     * @return 任务分页（摘要，完整内容见任务详情）
      */
     @GetMapping("/my")
-    public ResponseEntity<Map<String, Object>> getMyTasks(HttpServletRequest httpRequest) {
+    public ResponseEntity<Map<String, Object>> getMyTasks(@RequestParam(required = false) TaskStatus status,
+                                                            @RequestParam(required = false) TaskType taskType,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "20") int limit,
+                                                            HttpServletRequest httpRequest) {
         Long userId = (Long) httpRequest.getAttribute("userId");
-        List<TaskVO> tasks = taskService.getUserTasks(userId);
+        CursorPage<TaskSummaryVO> tasks = taskService.getUserTasks(userId, status, taskType, cursor, limit);
         
         Map<String, Object> result = new HashMap<>();
         result.put("code", 200);
@@ -13,4 +13,9 @@ public class ProjectCreateRequest {
     
     @Size(max = 500, message = "项目描述不能超过500字")
     private String description;
+    
+    /**
+     * 是否复用相同输入的历史分析结果（不传则创建时默认开启、更新时保持不变）
+     */
+    private Boolean resultCacheEnabled;
 }
@@ -0,0 +1,23 @@
+package com.devinsight.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量任务提交请求
+ */
+@Data
+public class TaskBatchSubmitRequest {
+    
+    /**
+     * 任务列表（单次最多1000个）
+     */
+    @NotEmpty(message = "任务列表不能为空")
+    @Size(max = 1000, message = "单次最多提交1000个任务")
+    @Valid
+    private List<TaskSubmitRequest> tasks;
+}
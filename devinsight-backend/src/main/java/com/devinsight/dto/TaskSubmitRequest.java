@@ -1,6 +1,8 @@
 package com.devinsight.dto;
 
 import com.devinsight.enums.TaskType;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
@@ -27,4 +29,11 @@ public class TaskSubmitRequest {
      */
     @NotNull(message = "输入数据不能为空")
     private String inputData;
+    
+    /**
+     * 优先级（0-9，越大越优先，不传默认为5）
+     */
+    @Min(value = 0, message = "优先级范围为0-9")
+    @Max(value = 9, message = "优先级范围为0-9")
+    private Integer priority;
 }
@@ -3,8 +3,10 @@ package com.devinsight.entity;
 import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.devinsight.enums.TaskLane;
 import com.devinsight.enums.TaskStatus;
 import com.devinsight.enums.TaskType;
+import com.devinsight.typehandler.CompressedText;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -16,6 +18,11 @@ import java.time.LocalDateTime;
 @TableName("ai_task")
 public class AiTask {
     
+    /**
+     * 默认优先级（0-9，越大越优先）
+     */
+    public static final int DEFAULT_PRIORITY = 5;
+    
     /**
      * 主键ID
      */
@@ -43,14 +50,44 @@ public class AiTask {
     private TaskStatus status;
     
     /**
-     * 输入数据（JSON格式）
+     * 优先级（0-9，越大越优先，仅影响同一项目、同一通道内的顺序）
+     */
+    private Integer priority;
+    
+    /**
+     * 预估成本（由输入大小和任务类型计算）
+     */
+    private Long estimatedCost;
+    
+    /**
+     * 执行通道
+     */
+    private TaskLane lane;
+    
+    /**
+     * 内容哈希：SHA-256(项目ID + 任务类型 + 归一化输入)，用于复用相同输入的结果；项目关闭结果缓存时为空
+     */
+    private String contentHash;
+    
+    /**
+     * 输入数据（JSON格式，压缩存储）；通过上传接口提交的任务为空，输入见 inputRef
      */
-    private String inputData;
+    private CompressedText inputData;
     
     /**
-     * 结果数据（JSON格式）
+     * 上传输入的存储引用（相对输入存储目录的路径）
      */
-    private String resultData;
+    private String inputRef;
+    
+    /**
+     * 输入大小（上传提交为字节数，JSON 提交为字符数）
+     */
+    private Long inputSize;
+    
+    /**
+     * 结果数据（JSON格式，压缩存储）
+     */
+    private CompressedText resultData;
     
     /**
      * 错误信息
@@ -71,4 +108,34 @@ public class AiTask {
      * 完成时间
      */
     private LocalDateTime completedAt;
+    
+    /**
+     * 持有租约的执行节点
+     */
+    private String workerId;
+    
+    /**
+     * 已尝试执行次数
+     */
+    private Integer attemptCount;
+    
+    /**
+     * 最近一次心跳时间
+     */
+    private LocalDateTime heartbeatAt;
+    
+    /**
+     * 租约到期时间
+     */
+    private LocalDateTime leaseExpiresAt;
+    
+    /**
+     * 重试任务的最早可执行时间
+     */
+    private LocalDateTime nextAttemptAt;
+    
+    /**
+     * 提交请求的 W3C traceparent，用于把执行阶段的 span 关联到提交请求
+     */
+    private String traceParent;
 }
@@ -0,0 +1,60 @@
+package com.devinsight.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 异常聚类（同一项目内指纹相同的异常归为一类）
+ */
+@Data
+@TableName("exception_cluster")
+public class ExceptionCluster {
+    
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    private Long projectId;
+    
+    /**
+     * 异常指纹
+     */
+    private String fingerprint;
+    
+    /**
+     * 最外层异常类型
+     */
+    private String exceptionType;
+    
+    /**
+     * 根因异常类型
+     */
+    private String rootCauseType;
+    
+    /**
+     * 最近一次出现时的异常消息
+     */
+    private String messageSample;
+    
+    /**
+     * 第一个业务代码栈帧
+     */
+    private String topFrame;
+    
+    /**
+     * 出现次数
+     */
+    private Long occurrenceCount;
+    
+    private LocalDateTime firstSeenAt;
+    
+    private LocalDateTime lastSeenAt;
+    
+    /**
+     * 最近一次出现对应的任务ID（可查看其分析结果）
+     */
+    private Long lastTaskId;
+}
@@ -20,6 +20,8 @@ public class Project {
     
     private Long ownerId;
     
+    private Boolean resultCacheEnabled;
+    
     private LocalDateTime createdAt;
     
     private LocalDateTime updatedAt;
@@ -0,0 +1,40 @@
+package com.devinsight.enums;
+
+import com.baomidou.mybatisplus.annotation.EnumValue;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * AI 任务执行通道枚举
+ * 按预估成本划分，两个通道使用独立线程池，交互通道的容量不会被批量任务占用
+ */
+public enum TaskLane {
+    
+    /**
+     * 交互通道：小输入，要求低延迟
+     */
+    INTERACTIVE("interactive", "交互"),
+    
+    /**
+     * 批量通道：大输入，追求吞吐
+     */
+    BATCH("batch", "批量");
+    
+    @EnumValue  // MyBatis-Plus 会使用这个值存储到数据库
+    @JsonValue  // JSON 序列化时使用这个值
+    private final String value;
+    
+    private final String description;
+    
+    TaskLane(String value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
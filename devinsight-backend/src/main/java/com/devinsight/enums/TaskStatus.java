@@ -26,7 +26,12 @@ public enum TaskStatus {
     /**
      * 执行失败
      */
-    FAILED("failed", "执行失败");
+    FAILED("failed", "执行失败"),
+    
+    /**
+     * 死信（重试次数用完，需人工处理）
+     */
+    DEAD_LETTER("dead_letter", "死信");
     
     @EnumValue  // MyBatis-Plus 会使用这个值存储到数据库
     @JsonValue  // JSON 序列化时使用这个值
@@ -46,4 +51,27 @@ public enum TaskStatus {
     public String getDescription() {
         return description;
     }
+    
+    /**
+     * 是否为终态（不会再发生状态变化）
+     */
+    public boolean isTerminal() {
+        return this == SUCCESS || this == FAILED || this == DEAD_LETTER;
+    }
+    
+    /**
+     * 根据存储值（或枚举名，忽略大小写）解析状态
+     *
+     * @param value 状态值
+     * @return 状态
+     * @throws IllegalArgumentException 未知的状态值
+     */
+    public static TaskStatus fromValue(String value) {
+        for (TaskStatus status : values()) {
+            if (status.value.equalsIgnoreCase(value) || status.name().equalsIgnoreCase(value)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("未知的任务状态: " + value);
+    }
 }
@@ -11,12 +11,12 @@ public enum TaskType {
     /**
      * 异常分析
      */
-    EXCEPTION_ANALYSIS("EXCEPTION_ANALYSIS", "异常分析"),
+    EXCEPTION_ANALYSIS("EXCEPTION_ANALYSIS", "异常分析", 1),
     
     /**
      * 日志总结
      */
-    LOG_SUMMARY("LOG_SUMMARY", "日志总结");
+    LOG_SUMMARY("LOG_SUMMARY", "日志总结", 3);
     
     @EnumValue  // MyBatis-Plus 会使用这个值存储到数据库
     @JsonValue  // JSON 序列化时使用这个值
@@ -24,9 +24,15 @@ public enum TaskType {
     
     private final String description;
     
-    TaskType(String value, String description) {
+    /**
+     * 成本系数：每 KB 输入的相对处理成本，用于预估任务成本
+     */
+    private final int costWeight;
+    
+    TaskType(String value, String description, int costWeight) {
         this.value = value;
         this.description = description;
+        this.costWeight = costWeight;
     }
     
     public String getValue() {
@@ -36,4 +42,8 @@ public enum TaskType {
     public String getDescription() {
         return description;
     }
+    
+    public int getCostWeight() {
+        return costWeight;
+    }
 }
@@ -0,0 +1,22 @@
+package com.devinsight.exception;
+
+import lombok.Getter;
+
+/**
+ * 任务执行异常
+ * retryable 表示该失败是否值得重试（如 AI 服务超时），输入错误等确定性失败应标记为不可重试
+ */
+@Getter
+public class TaskExecutionException extends RuntimeException {
+    private final boolean retryable;
+    
+    public TaskExecutionException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+    
+    public TaskExecutionException(String message, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+}
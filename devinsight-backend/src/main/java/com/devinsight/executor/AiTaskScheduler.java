@@ -1,19 +1,48 @@
 package com.devinsight.executor;
 
+import com.devinsight.ai.AiProviderRegistry;
 import com.devinsight.entity.AiTask;
+import com.devinsight.enums.TaskLane;
 import com.devinsight.mapper.AiTaskMapper;
+import com.devinsight.service.TaskResultCache;
+import com.devinsight.tracing.TaskTracer;
+import com.devinsight.tracing.TraceSpan;
+import com.devinsight.typehandler.CompressedText;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * AI 任务调度器
- * 定时扫描 pending 状态的任务并执行
+ * 由 NOTIFY 唤醒（定时扫描兜底），按通道抢占 pending 任务后投递到对应线程池并发执行：
+ * - interactive 通道拥有预留容量，满载时可借用 batch 通道的空闲容量
+ * - batch 通道只使用自己的容量，不会挤占交互任务
+ * 任务在通道线程上完成本地预处理后异步调用 AI 服务，许可在任务最终完成时才归还，
+ * 因此 max-in-flight 限制的是包括远程调用在内的在途任务数，而不是线程数。
+ * 同一项目内容相同（项目 + 任务类型 + 内容哈希）的任务在途合并，只调用一次 AI 服务。
+ * 每次执行记录 task.queue / task.claim / task.attempt（含 dispatch、provider、serialize、persist）span，
+ * 挂在提交请求的 trace 之下。
  */
 @Slf4j
 @Component
@@ -23,133 +52,438 @@ public class AiTaskScheduler {
     @Autowired
     private AiTaskMapper taskMapper;
     
+    @Autowired
+    private TaskLeaseManager leaseManager;
+    
+    @Autowired
+    private TaskRetryHandler retryHandler;
+    
+    @Autowired
+    private TaskResultCache resultCache;
+    
+    @Autowired
+    private AiProviderRegistry providerRegistry;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private TaskMetrics metrics;
+    
+    @Autowired
+    private TaskTracer tracer;
+    
+    @Autowired
+    @Qualifier("aiTaskCompletionExecutor")
+    private ThreadPoolTaskExecutor completionExecutor;
+    
+    @Autowired
+    @Qualifier("aiInteractiveTaskExecutor")
+    private ThreadPoolTaskExecutor interactiveTaskExecutor;
+    
+    @Autowired
+    @Qualifier("aiBatchTaskExecutor")
+    private ThreadPoolTaskExecutor batchTaskExecutor;
+    
+    /**
+     * 单次扫描每个通道抢占的最大任务数
+     */
+    @Value("${task.scheduler.batch-size:10}")
+    private int batchSize;
+    
+    /**
+     * 交互通道同时执行（含排队）的最大任务数
+     */
+    @Value("${task.executor.interactive.max-in-flight:12}")
+    private int interactiveMaxInFlight;
+    
+    /**
+     * 批量通道同时执行（含排队）的最大任务数
+     */
+    @Value("${task.executor.batch.max-in-flight:40}")
+    private int batchMaxInFlight;
+    
+    /**
+     * 未配置 project_task_quota 的项目的并发上限（跨节点）
+     */
+    @Value("${task.fair-share.default-max-running:20}")
+    private int defaultMaxRunning;
+    
+    private LaneExecutor interactiveLane;
+    
+    private LaneExecutor batchLane;
+    
+    /**
+     * 在途执行（按 项目ID:任务类型:内容哈希 合并相同任务）
+     */
+    private final InFlightTaskRegistry inFlightTasks = new InFlightTaskRegistry();
+    
+    private Counter coalescedCounter;
+    
+    /**
+     * 唤醒扫描专用线程（单线程，多次唤醒合并为一次扫描；也用于重试到期后的延迟唤醒）
+     */
+    private ScheduledExecutorService wakeupExecutor;
+    
+    /**
+     * 是否已有一次唤醒在排队
+     */
+    private final AtomicBoolean wakeupQueued = new AtomicBoolean(false);
+    
+    /**
+     * 上一轮扫描是否因许可耗尽而提前结束（有任务归还许可时需要再次扫描）
+     */
+    private final AtomicBoolean saturated = new AtomicBoolean(false);
+    
+    @PostConstruct
+    public void init() {
+        interactiveLane = new LaneExecutor(TaskLane.INTERACTIVE, interactiveTaskExecutor, interactiveMaxInFlight);
+        batchLane = new LaneExecutor(TaskLane.BATCH, batchTaskExecutor, batchMaxInFlight);
+        metrics.bindLane(interactiveLane);
+        metrics.bindLane(batchLane);
+        coalescedCounter = Counter.builder("ai.task.coalesced")
+                .description("合并到相同在途任务、未单独调用 AI 服务的任务数")
+                .register(meterRegistry);
+        Gauge.builder("ai.task.in-flight.unique", inFlightTasks, InFlightTaskRegistry::size)
+                .description("正在执行的不同任务内容数")
+                .register(meterRegistry);
+        wakeupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ai-task-wakeup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        wakeupExecutor.shutdownNow();
+    }
+    
+    /**
+     * 立即触发一次扫描（由任务通知或任务完成时调用）
+     * 已有唤醒在排队时直接合并，不会堆积
+     */
+    public void wakeUp() {
+        if (!wakeupQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            wakeupExecutor.execute(() -> {
+                wakeupQueued.set(false);
+                try {
+                    scanAndExecute();
+                } catch (Exception e) {
+                    log.error("唤醒扫描异常", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            wakeupQueued.set(false);
+        }
+    }
+    
+    /**
+     * 延迟触发一次扫描（重试任务到期时唤醒）
+     *
+     * @param delayMillis 延迟毫秒数
+     */
+    public void wakeUpAfter(long delayMillis) {
+        try {
+            wakeupExecutor.schedule(this::wakeUp, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("调度器已停止，忽略延迟唤醒");
+        }
+    }
+    
     /**
-     * 定时扫描并执行任务
-     * 每5秒执行一次
+     * 扫描并投递任务
+     * 正常情况下由 NOTIFY 唤醒，定时扫描只作为兜底（通知丢失、监听连接断开等）
+     * 只要还有空闲许可就持续抢占，不等待已投递的任务执行完成
      */
-    @Scheduled(fixedDelay = 5000)
-    public void scanAndExecute() {
-        // 1. 查询 pending 状态的任务（最多10个）
-        List<AiTask> tasks = taskMapper.selectByStatus("pending", 10);
+    @Scheduled(fixedDelayString = "${task.scheduler.scan-interval:30000}")
+    public synchronized void scanAndExecute() {
+        while (true) {
+            // 1. 交互通道优先：可用容量 = 自身空闲许可 + 批量通道空闲许可
+            boolean interactiveMore = claimAndDispatch(TaskLane.INTERACTIVE,
+                    interactiveLane.availablePermits() + batchLane.availablePermits());
+            
+            // 2. 批量通道只使用自身容量
+            boolean batchMore = claimAndDispatch(TaskLane.BATCH, batchLane.availablePermits());
+            
+            // 两个通道都已取空（或满载）时结束本轮
+            if (!interactiveMore && !batchMore) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * 抢占指定通道的任务并投递
+     *
+     * @param lane      执行通道
+     * @param available 该通道当前可用的许可数
+     * @return 是否可能还有更多待抢占的任务（本轮抢满一批）
+     */
+    private boolean claimAndDispatch(TaskLane lane, int available) {
+        int capacity = Math.min(batchSize, available);
+        if (capacity <= 0) {
+            saturated.set(true);
+            metrics.recordSaturated(lane);
+            log.debug("{} 通道已满载，等待任务完成后再扫描", lane);
+            return false;
+        }
         
+        // 单条语句按项目公平分配批量抢占 pending 任务
+        Timer.Sample claimSample = metrics.startClaim();
+        long claimStart = tracer.now();
+        List<AiTask> tasks = taskMapper.claimPendingTasks(lane.getValue(), capacity, defaultMaxRunning,
+                leaseManager.getWorkerId(), leaseManager.getLeaseDuration(), LocalDateTime.now());
+        long claimEnd = tracer.now();
+        metrics.recordClaim(lane, claimSample, tasks);
         if (tasks.isEmpty()) {
-            return;
+            return false;
         }
         
-        log.info("扫描到 {} 个待执行任务", tasks.size());
+        log.info("{} 通道抢占到 {} 个待执行任务", lane, tasks.size());
         
-        // 2. 逐个处理任务
         for (AiTask task : tasks) {
-            try {
-                executeTask(task);
-            } catch (Exception e) {
-                log.error("任务执行异常: taskId={}", task.getId(), e);
-            }
+            traceClaim(task, claimStart, claimEnd);
+            dispatch(task);
         }
+        
+        // 不足一批说明该通道队列已经取空
+        return tasks.size() == capacity;
     }
     
     /**
-     * 执行单个任务
+     * 记录排队（创建到开始执行）和抢占 SQL 两个阶段
+     * 排队的开始时间来自数据库，与本节点时钟的偏差会体现在这个 span 上
+     */
+    private void traceClaim(AiTask task, long claimStart, long claimEnd) {
+        if (task.getCreatedAt() != null && task.getStartedAt() != null) {
+            TraceSpan queue = tracer.startSpan(task.getTraceParent(), "task.queue", task.getId(),
+                    tracer.toEpochNanos(task.getCreatedAt()));
+            queue.setAttribute("task.attempt", task.getAttemptCount());
+            tracer.end(queue, null, tracer.toEpochNanos(task.getStartedAt()));
+        }
+        TraceSpan claim = tracer.startSpan(task.getTraceParent(), "task.claim", task.getId(), claimStart);
+        claim.setAttribute("task.lane", task.getLane().getValue());
+        claim.setAttribute("task.worker", leaseManager.getWorkerId());
+        tracer.end(claim, null, claimEnd);
+    }
+    
+    /**
+     * 将已抢占的任务投递到线程池
+     * 交互任务优先使用交互通道，满载时借用批量通道；批量任务只能使用批量通道
      *
-     * @param task 任务对象
+     * @param task 任务对象（状态已是 running）
      */
-    private void executeTask(AiTask task) {
-        // 1. 乐观锁：尝试抢占任务
-        int rows = taskMapper.updateToRunning(task.getId(), LocalDateTime.now());
-        if (rows == 0) {
-            log.debug("任务已被其他线程抢占: taskId={}", task.getId());
+    private void dispatch(AiTask task) {
+        LaneExecutor laneExecutor = null;
+        if (task.getLane() == TaskLane.INTERACTIVE && interactiveLane.tryAcquire()) {
+            laneExecutor = interactiveLane;
+        } else if (batchLane.tryAcquire()) {
+            laneExecutor = batchLane;
+        }
+        if (laneExecutor == null) {
+            metrics.recordConflict(TaskMetrics.Conflict.LANE_FULL);
+            taskMapper.resetToPending(task.getId(), leaseManager.getWorkerId());
             return;
         }
         
-        log.info("开始执行任务: taskId={}, type={}, projectId={}", 
-                task.getId(), task.getTaskType(), task.getProjectId());
-        
-        try {
-            // 2. 执行任务（调用AI）
-            String result = processTask(task);
-            
-            // 3. 更新为成功
-            taskMapper.updateToSuccess(task.getId(), result, LocalDateTime.now());
-            
-            log.info("任务执行成功: taskId={}", task.getId());
-            
-        } catch (Exception e) {
-            // 4. 更新为失败
-            String errorMessage = e.getMessage();
-            if (errorMessage == null || errorMessage.isEmpty()) {
-                errorMessage = e.getClass().getSimpleName();
+        LaneExecutor target = laneExecutor;
+        TraceSpan attempt = tracer.startSpan(task.getTraceParent(), "task.attempt", task.getId(), tracer.now());
+        attempt.setAttribute("task.type", task.getTaskType().getValue());
+        attempt.setAttribute("task.attempt", task.getAttemptCount());
+        attempt.setAttribute("task.lane", target.getLane().getValue());
+        TraceSpan dispatchSpan = tracer.startChild(attempt, "task.dispatch");
+        AtomicBoolean released = new AtomicBoolean(false);
+        Runnable releasePermit = () -> {
+            if (released.compareAndSet(false, true)) {
+                target.release();
+                // 满载期间积压的任务由这里继续喂给线程池
+                if (saturated.compareAndSet(true, false)) {
+                    wakeUp();
+                }
             }
-            
-            taskMapper.updateToFailed(task.getId(), errorMessage, LocalDateTime.now());
-            
-            log.error("任务执行失败: taskId={}, error={}", task.getId(), errorMessage);
+        };
+        leaseManager.register(task.getId());
+        try {
+            target.execute(() -> {
+                tracer.end(dispatchSpan);
+                CompletableFuture<Void> execution;
+                try {
+                    execution = executeTask(task, releasePermit, attempt);
+                } catch (Exception e) {
+                    log.error("任务执行异常: taskId={}", task.getId(), e);
+                    execution = CompletableFuture.completedFuture(null);
+                }
+                execution.whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        log.error("任务执行异常: taskId={}", task.getId(), error);
+                    }
+                    tracer.end(attempt, error);
+                    leaseManager.unregister(task.getId());
+                    releasePermit.run();
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            leaseManager.unregister(task.getId());
+            target.release();
+            metrics.recordConflict(TaskMetrics.Conflict.REJECTED);
+            tracer.end(dispatchSpan, e);
+            tracer.end(attempt.setAttribute("task.outcome", "rejected"), e);
+            taskMapper.resetToPending(task.getId(), leaseManager.getWorkerId());
+            log.warn("{} 线程池已满，任务退回待执行: taskId={}", target.getLane(), task.getId());
         }
     }
     
     /**
-     * 处理任务（调用AI）
-     * 当前为模拟实现，后续对接真实 AI API
+     * 执行单个任务（在线程池中调用）
+     * 本地预处理在当前线程完成；AI 服务调用完成后，结果压缩、写库和许可 / 租约的归还都在完成处理线程池上执行，
+     * 不阻塞 HTTP 客户端的 I/O 线程（否则会拖慢其他响应，并抬高并发限制器测到的延迟）。
+     * 已有相同内容的任务在执行时直接等待它的结果，并立即归还通道许可（等待期间不占用执行容量）
      *
-     * @param task 任务对象
-     * @return 处理结果（JSON格式）
+     * @param task          任务对象
+     * @param releasePermit 归还通道许可（可重复调用）
+     * @param attempt       本次执行的 span
+     * @return 任务结束（成功或已完成失败处理）时完成
      */
-    private String processTask(AiTask task) throws Exception {
-        // 模拟AI处理耗时
-        Thread.sleep(2000);
+    private CompletableFuture<Void> executeTask(AiTask task, Runnable releasePermit, TraceSpan attempt) {
+        log.info("开始执行任务: taskId={}, type={}, projectId={}, lane={}", 
+                task.getId(), task.getTaskType(), task.getProjectId(), task.getLane());
+        long start = System.nanoTime();
         
-        // 根据任务类型返回模拟结果
-        switch (task.getTaskType()) {
-            case EXCEPTION_ANALYSIS:
-                return generateExceptionAnalysisResult(task.getInputData());
-            case LOG_SUMMARY:
-                return generateLogSummaryResult(task.getInputData());
-            default:
-                throw new IllegalArgumentException("未知的任务类型: " + task.getTaskType());
+        // 1. 执行任务（调用AI），内容相同的在途任务只执行一次
+        TraceSpan providerSpan = tracer.startChild(attempt, "task.provider");
+        CompletableFuture<String> output;
+        AtomicBoolean coalesced = new AtomicBoolean();
+        if (task.getContentHash() != null) {
+            // 只在项目内合并：结果包含输入中的租户数据；contentHash 非空说明该项目开启了结果复用
+            output = inFlightTasks.execute(
+                    task.getProjectId() + ":" + task.getTaskType().getValue() + ":" + task.getContentHash(),
+                    () -> process(task),
+                    () -> {
+                        coalesced.set(true);
+                        providerSpan.setAttribute("task.coalesced", true);
+                        coalescedCounter.increment();
+                        releasePermit.run();
+                        log.info("任务与在途的相同任务合并执行: taskId={}", task.getId());
+                    });
+        } else {
+            output = process(task);
+        }
+        
+        // I/O 线程上只记录调用结束时间，其余处理切换到完成处理线程池
+        CompletableFuture<String> providerDone = output.whenComplete(
+                (result, error) -> providerSpan.setEndEpochNanos(tracer.now()));
+        return providerDone.handleAsync((result, error) -> {
+            Throwable failure = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            tracer.end(providerSpan, failure, providerSpan.getEndEpochNanos());
+            
+            CompressedText compressed = null;
+            if (failure == null) {
+                TraceSpan serializeSpan = tracer.startChild(attempt, "task.serialize");
+                try {
+                    // 合并执行的任务共享结论，按自己的输入补上本次的细节
+                    String ownResult = coalesced.get()
+                            ? providerRegistry.getProvider(task.getTaskType()).applyOccurrence(task, result)
+                            : result;
+                    compressed = CompressedText.of(ownResult);
+                    serializeSpan.setAttribute("result.encoded_size", compressed.getEncodedSize());
+                    serializeSpan.setAttribute("result.compressed", compressed.isCompressed());
+                } catch (Exception e) {
+                    failure = e;
+                }
+                tracer.end(serializeSpan, failure);
+            }
+            
+            TraceSpan persistSpan = tracer.startChild(attempt, "task.persist");
+            TaskMetrics.Outcome outcome = TaskMetrics.Outcome.LEASE_LOST;
+            try {
+                if (failure != null) {
+                    throw failure;
+                }
+                outcome = completeTask(task, compressed);
+            } catch (Throwable e) {
+                // 3. 失败处理：重试 / 死信 / 失败
+                outcome = handleFailure(task, e);
+            } finally {
+                tracer.end(persistSpan.setAttribute("task.outcome", outcome.getValue()));
+                attempt.setAttribute("task.outcome", outcome.getValue());
+            }
+            metrics.recordExecution(task, outcome, start);
+            return null;
+        }, completionExecutor);
+    }
+    
+    private CompletableFuture<String> process(AiTask task) {
+        try {
+            return providerRegistry.getProvider(task.getTaskType()).process(task);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
     
     /**
-     * 生成异常分析结果（模拟）
-     */
-    private String generateExceptionAnalysisResult(String inputData) {
-        return String.format("""
-                {
-                  "type": "EXCEPTION_ANALYSIS",
-                  "summary": "这是一个空指针异常，通常发生在对象未初始化时访问其属性或方法",
-                  "rootCause": "变量未正确初始化",
-                  "suggestions": [
-                    "检查对象是否正确初始化",
-                    "添加空值判断",
-                    "使用 Optional 类避免空指针"
-                  ],
-                  "confidence": 0.85,
-                  "analyzedAt": "%s"
-                }
-                """, LocalDateTime.now());
+     * 保存执行结果
+     *
+     * @param task   任务对象
+     * @param result 执行结果
+     * @return 执行结果分类
+     */
+    private TaskMetrics.Outcome completeTask(AiTask task, CompressedText result) {
+        // 2. 更新为成功（租约已丢失时结果作废）
+        int rows = taskMapper.updateToSuccess(task.getId(), leaseManager.getWorkerId(),
+                result, LocalDateTime.now());
+        if (rows == 0) {
+            log.warn("任务租约已丢失，丢弃执行结果: taskId={}", task.getId());
+            return TaskMetrics.Outcome.LEASE_LOST;
+        }
+        
+        resultCache.put(task.getProjectId(), task.getTaskType(), task.getContentHash(), result);
+        
+        log.info("任务执行成功: taskId={}, attempt={}", task.getId(), task.getAttemptCount());
+        return TaskMetrics.Outcome.SUCCESS;
     }
     
     /**
-     * 生成日志总结结果（模拟）
-     */
-    private String generateLogSummaryResult(String inputData) {
-        return String.format("""
-                {
-                  "type": "LOG_SUMMARY",
-                  "summary": "系统运行正常，共处理了1000个请求，平均响应时间200ms",
-                  "keyMetrics": {
-                    "totalRequests": 1000,
-                    "avgResponseTime": "200ms",
-                    "errorRate": "0.5%%"
-                  },
-                  "anomalies": [
-                    "14:30-14:35期间响应时间略有上升"
-                  ],
-                  "recommendations": [
-                    "关注数据库查询性能",
-                    "考虑增加缓存"
-                  ],
-                  "analyzedAt": "%s"
-                }
-                """, LocalDateTime.now());
+     * 处理任务失败
+     * - 可重试且还有剩余次数：指数退避后退回 pending
+     * - 可重试但次数用完：进入死信
+     * - 不可重试：直接失败
+     *
+     * @param task 任务对象
+     * @param e    失败原因
+     * @return 执行结果分类
+     */
+    private TaskMetrics.Outcome handleFailure(AiTask task, Throwable e) {
+        String errorMessage = e.getMessage();
+        if (errorMessage == null || errorMessage.isEmpty()) {
+            errorMessage = e.getClass().getSimpleName();
+        }
+        String workerId = leaseManager.getWorkerId();
+        
+        if (!retryHandler.isRetryable(e)) {
+            int rows = taskMapper.updateToFailed(task.getId(), workerId, errorMessage, LocalDateTime.now());
+            log.error("任务执行失败（不可重试）: taskId={}, error={}", task.getId(), errorMessage);
+            return rows > 0 ? TaskMetrics.Outcome.FAILED : TaskMetrics.Outcome.LEASE_LOST;
+        }
+        
+        if (!retryHandler.hasAttemptsLeft(task)) {
+            int rows = taskMapper.updateToDeadLetter(task.getId(), workerId, errorMessage, LocalDateTime.now());
+            log.error("任务重试次数用完，进入死信: taskId={}, attempts={}, error={}",
+                    task.getId(), task.getAttemptCount(), errorMessage);
+            return rows > 0 ? TaskMetrics.Outcome.DEAD_LETTER : TaskMetrics.Outcome.LEASE_LOST;
+        }
+        
+        long delayMillis = retryHandler.nextDelayMillis(task);
+        int rows = taskMapper.updateToRetry(task.getId(), workerId, errorMessage, delayMillis);
+        if (rows > 0) {
+            wakeUpAfter(delayMillis);
+        }
+        log.warn("任务执行失败，{}ms 后重试: taskId={}, attempt={}, error={}",
+                delayMillis, task.getId(), task.getAttemptCount(), errorMessage);
+        return rows > 0 ? TaskMetrics.Outcome.RETRY : TaskMetrics.Outcome.LEASE_LOST;
     }
 }
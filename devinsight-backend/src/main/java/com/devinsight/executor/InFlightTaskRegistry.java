@@ -0,0 +1,56 @@
+package com.devinsight.executor;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 相同任务的在途合并（single-flight）
+ * 以 项目ID:任务类型:内容哈希 为键（不跨项目合并）：第一个任务真正调用 AI 服务，它执行期间抢占到的相同任务直接挂到同一个结果上，
+ * 执行结束时所有任务一起完成（失败时各自按重试策略处理）。
+ * 只在本节点内合并；执行结束后再到达的相同任务由结果缓存命中。
+ */
+class InFlightTaskRegistry {
+    
+    private final Map<String, CompletableFuture<String>> executions = new ConcurrentHashMap<>();
+    
+    /**
+     * 执行或加入相同任务的在途执行
+     *
+     * @param key         合并键
+     * @param execution   真正的执行（没有在途执行时调用）
+     * @param onCoalesced 加入已有执行时的回调
+     * @return 执行结果
+     */
+    CompletableFuture<String> execute(String key, Callable<CompletableFuture<String>> execution,
+                                      Runnable onCoalesced) {
+        CompletableFuture<String> leader = new CompletableFuture<>();
+        CompletableFuture<String> existing = executions.putIfAbsent(key, leader);
+        if (existing != null) {
+            onCoalesced.run();
+            return existing;
+        }
+        
+        CompletableFuture<String> result;
+        try {
+            result = execution.call();
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, error) -> {
+            // 先移除再完成，之后抢占到的相同任务不会挂到已结束的执行上
+            executions.remove(key, leader);
+            if (error != null) {
+                leader.completeExceptionally(error);
+            } else {
+                leader.complete(value);
+            }
+        });
+        return leader;
+    }
+    
+    int size() {
+        return executions.size();
+    }
+}
@@ -0,0 +1,74 @@
+package com.devinsight.executor;
+
+import com.devinsight.enums.TaskLane;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * 执行通道：独立线程池 + 在途任务许可
+ * 许可数不超过线程池容量（线程数 + 队列长度），正常情况下投递不会被拒绝
+ */
+@Slf4j
+class LaneExecutor {
+    
+    private final TaskLane lane;
+    
+    private final ThreadPoolTaskExecutor executor;
+    
+    private final int maxInFlight;
+    
+    private final Semaphore permits;
+    
+    LaneExecutor(TaskLane lane, ThreadPoolTaskExecutor executor, int maxInFlight) {
+        int capacity = executor.getMaxPoolSize() + executor.getQueueCapacity();
+        if (maxInFlight > capacity) {
+            log.warn("{} 通道 max-in-flight({}) 超过线程池容量({})，按线程池容量生效", lane, maxInFlight, capacity);
+            maxInFlight = capacity;
+        }
+        this.lane = lane;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+    
+    TaskLane getLane() {
+        return lane;
+    }
+    
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+    
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+    
+    int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+    
+    int getActiveThreads() {
+        return executor.getActiveCount();
+    }
+    
+    int getQueueSize() {
+        return executor.getThreadPoolExecutor().getQueue().size();
+    }
+    
+    boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+    
+    void release() {
+        permits.release();
+    }
+    
+    /**
+     * 投递任务（调用前必须已取得许可）
+     */
+    void execute(Runnable runnable) {
+        executor.execute(runnable);
+    }
+}
@@ -0,0 +1,57 @@
+package com.devinsight.executor;
+
+import com.devinsight.mapper.AiTaskMapper;
+import com.devinsight.service.TaskInputStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 上传输入保留期清理
+ * 已结束（success / failed / dead_letter）超过保留时长的任务，清除 input_ref 并删除对应的上传文件，
+ * 任务记录和结果保留。每次按批处理直到没有过期数据，批次之间不持有事务。
+ */
+@Slf4j
+@Component
+public class TaskInputRetentionSweeper {
+    
+    @Autowired
+    private AiTaskMapper taskMapper;
+    
+    @Autowired
+    private TaskInputStorage inputStorage;
+    
+    @Value("${task.input-storage.retention.ttl:30d}")
+    private Duration retention;
+    
+    @Value("${task.input-storage.retention.batch-size:500}")
+    private int batchSize;
+    
+    /**
+     * 清理过期的上传输入
+     */
+    @Scheduled(fixedDelayString = "${task.input-storage.retention.sweep-interval:3600000}", initialDelay = 60000)
+    public void sweep() {
+        LocalDateTime before = LocalDateTime.now().minus(retention);
+        long deleted = 0;
+        try {
+            List<String> refs;
+            do {
+                refs = taskMapper.clearExpiredInputRefs(before, batchSize);
+                refs.forEach(inputStorage::delete);
+                deleted += refs.size();
+            } while (refs.size() == batchSize);
+        } catch (Exception e) {
+            log.error("清理过期上传输入失败，稍后重试", e);
+        }
+        if (deleted > 0) {
+            log.info("已清理过期上传输入: files={}, before={}", deleted, before);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.devinsight.executor;
+
+import com.devinsight.config.TaskRetryProperties;
+import com.devinsight.enums.TaskType;
+import com.devinsight.mapper.AiTaskMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务租约管理
+ * 抢占任务时获得租约，执行期间由心跳续租；节点宕机后租约过期，
+ * 由回收器把任务退回 pending（超过该任务类型的最大尝试次数则进入死信）
+ * 心跳和回收器运行在独立的线程上，不与 Spring 默认的单线程调度器共享：
+ * 扫描抢占、压缩迁移等慢任务阻塞默认调度器时，心跳不会因此延误到租约过期，
+ * 回收器也就不会把仍在执行的任务退回 pending 造成重复执行
+ */
+@Slf4j
+@Component
+public class TaskLeaseManager {
+    
+    @Autowired
+    private AiTaskMapper taskMapper;
+    
+    @Autowired
+    private TaskRetryProperties retryProperties;
+    
+    /**
+     * 租约时长（毫秒）
+     */
+    @Value("${task.lease.duration:15000}")
+    private long leaseDuration;
+    
+    @Value("${task.lease.heartbeat-interval:5000}")
+    private long heartbeatInterval;
+    
+    @Value("${task.lease.reaper-interval:5000}")
+    private long reaperInterval;
+    
+    /**
+     * 当前节点标识：pid@host + 随机后缀，重启后不会与旧租约混淆
+     */
+    private final String workerId = ManagementFactory.getRuntimeMXBean().getName()
+            + "-" + UUID.randomUUID().toString().substring(0, 8);
+    
+    /**
+     * 本节点正在执行的任务
+     */
+    private final Set<Long> runningTasks = ConcurrentHashMap.newKeySet();
+    
+    private ScheduledExecutorService leaseExecutor;
+    
+    @PostConstruct
+    public void init() {
+        if (heartbeatInterval * 2 > leaseDuration) {
+            log.warn("心跳间隔({}ms)超过租约时长({}ms)的一半，一次心跳延误就可能导致租约过期",
+                    heartbeatInterval, leaseDuration);
+        }
+        // 心跳与回收器各用一个线程：回收 SQL 变慢时也不影响续租
+        leaseExecutor = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "task-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        leaseExecutor.scheduleWithFixedDelay(() -> runSafely("任务续租", this::heartbeat),
+                heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+        leaseExecutor.scheduleWithFixedDelay(() -> runSafely("租约回收", this::reapExpiredLeases),
+                reaperInterval, reaperInterval, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void destroy() {
+        leaseExecutor.shutdownNow();
+    }
+    
+    public String getWorkerId() {
+        return workerId;
+    }
+    
+    public long getLeaseDuration() {
+        return leaseDuration;
+    }
+    
+    /**
+     * 登记正在执行的任务，心跳会为其续租
+     */
+    public void register(Long taskId) {
+        runningTasks.add(taskId);
+    }
+    
+    /**
+     * 任务结束后取消登记
+     */
+    public void unregister(Long taskId) {
+        runningTasks.remove(taskId);
+    }
+    
+    /**
+     * 心跳：批量续租本节点正在执行的任务
+     */
+    public void heartbeat() {
+        if (runningTasks.isEmpty()) {
+            return;
+        }
+        List<Long> taskIds = new ArrayList<>(runningTasks);
+        int rows = taskMapper.extendLeases(taskIds, workerId, leaseDuration);
+        if (rows < taskIds.size()) {
+            log.warn("部分任务续租失败（租约可能已被回收）: expected={}, actual={}", taskIds.size(), rows);
+        }
+    }
+    
+    /**
+     * 回收器：处理租约过期的任务
+     */
+    public void reapExpiredLeases() {
+        for (TaskType taskType : TaskType.values()) {
+            int maxAttempts = retryProperties.getPolicy(taskType).getMaxAttempts();
+            List<Long> deadLettered = taskMapper.deadLetterExpiredLeases(taskType.getValue(), maxAttempts,
+                    "任务租约多次过期，已放弃执行", LocalDateTime.now());
+            if (!deadLettered.isEmpty()) {
+                log.error("租约过期且超过最大尝试次数，任务进入死信: type={}, taskIds={}", taskType, deadLettered);
+            }
+        }
+        
+        List<Long> reclaimed = taskMapper.reclaimExpiredLeases();
+        if (!reclaimed.isEmpty()) {
+            log.warn("回收租约过期的任务，退回待执行: taskIds={}", reclaimed);
+        }
+    }
+    
+    /**
+     * scheduleWithFixedDelay 在任务抛出异常后会停止调度，这里吞掉异常保证下一轮继续执行
+     */
+    private void runSafely(String name, Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            log.error("{}失败", name, e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.devinsight.executor;
+
+import com.devinsight.entity.AiTask;
+import com.devinsight.enums.TaskLane;
+import com.devinsight.enums.TaskStatus;
+import com.devinsight.enums.TaskType;
+import com.devinsight.mapper.AiTaskMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务调度指标
+ * - ai.task.backlog{type,status}：集群内 pending / running 任务数（定时从数据库刷新）
+ * - ai.task.queue.wait{type,lane}：排队时间（created_at 到 started_at）
+ * - ai.task.execution{type,outcome}：执行耗时，各 outcome 的计数即成功 / 失败速率
+ * - ai.task.claim{lane}、ai.task.claimed{lane}、ai.task.claim.conflicts{reason}：抢占耗时、数量和冲突
+ * - ai.task.lane.*{lane}：各通道在途任务数、线程池活跃线程数和队列长度，以及满载次数
+ * 延迟类指标发布直方图桶，Prometheus 侧用 histogram_quantile 按节点聚合计算分位数。
+ */
+@Slf4j
+@Component
+public class TaskMetrics {
+    
+    /**
+     * 执行结果
+     */
+    enum Outcome {
+        SUCCESS("success"),
+        RETRY("retry"),
+        FAILED("failed"),
+        DEAD_LETTER("dead_letter"),
+        /**
+         * 租约已被回收，结果被丢弃
+         */
+        LEASE_LOST("lease_lost");
+        
+        private final String value;
+        
+        Outcome(String value) {
+            this.value = value;
+        }
+        
+        String getValue() {
+            return value;
+        }
+    }
+    
+    /**
+     * 抢占后未能执行的原因
+     */
+    enum Conflict {
+        /**
+         * 抢占后通道许可已被占满，退回 pending
+         */
+        LANE_FULL("lane_full"),
+        /**
+         * 线程池拒绝，退回 pending
+         */
+        REJECTED("rejected"),
+        /**
+         * 执行结束时租约已被其他节点回收
+         */
+        LEASE_LOST("lease_lost");
+        
+        private final String value;
+        
+        Conflict(String value) {
+            this.value = value;
+        }
+    }
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private AiTaskMapper taskMapper;
+    
+    private final Map<TaskType, Map<TaskStatus, AtomicLong>> backlog = new EnumMap<>(TaskType.class);
+    
+    private final Map<TaskType, Map<TaskLane, Timer>> queueWaitTimers = new EnumMap<>(TaskType.class);
+    
+    private final Map<TaskType, Map<Outcome, Timer>> executionTimers = new EnumMap<>(TaskType.class);
+    
+    private final Map<TaskLane, Timer> claimTimers = new EnumMap<>(TaskLane.class);
+    
+    private final Map<TaskLane, Counter> claimedCounters = new EnumMap<>(TaskLane.class);
+    
+    private final Map<TaskLane, Counter> saturatedCounters = new EnumMap<>(TaskLane.class);
+    
+    private final Map<Conflict, Counter> conflictCounters = new EnumMap<>(Conflict.class);
+    
+    @PostConstruct
+    public void init() {
+        for (TaskType type : TaskType.values()) {
+            Map<TaskStatus, AtomicLong> counts = new EnumMap<>(TaskStatus.class);
+            for (TaskStatus status : new TaskStatus[]{TaskStatus.PENDING, TaskStatus.RUNNING}) {
+                AtomicLong count = new AtomicLong();
+                counts.put(status, count);
+                Gauge.builder("ai.task.backlog", count, AtomicLong::get)
+                        .description("集群内待执行 / 执行中的任务数")
+                        .tag("type", type.getValue())
+                        .tag("status", status.getValue())
+                        .register(meterRegistry);
+            }
+            backlog.put(type, counts);
+            
+            Map<TaskLane, Timer> waitTimers = new EnumMap<>(TaskLane.class);
+            for (TaskLane lane : TaskLane.values()) {
+                waitTimers.put(lane, Timer.builder("ai.task.queue.wait")
+                        .description("任务从提交到开始执行的等待时间")
+                        .tag("type", type.getValue())
+                        .tag("lane", lane.getValue())
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(10))
+                        .maximumExpectedValue(Duration.ofHours(1))
+                        .register(meterRegistry));
+            }
+            queueWaitTimers.put(type, waitTimers);
+            
+            Map<Outcome, Timer> timers = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                timers.put(outcome, Timer.builder("ai.task.execution")
+                        .description("任务执行耗时（从投递到线程池到结果写回）")
+                        .tag("type", type.getValue())
+                        .tag("outcome", outcome.value)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(10))
+                        .maximumExpectedValue(Duration.ofMinutes(10))
+                        .register(meterRegistry));
+            }
+            executionTimers.put(type, timers);
+        }
+        
+        for (TaskLane lane : TaskLane.values()) {
+            claimTimers.put(lane, Timer.builder("ai.task.claim")
+                    .description("抢占 pending 任务的 SQL 耗时")
+                    .tag("lane", lane.getValue())
+                    .register(meterRegistry));
+            claimedCounters.put(lane, Counter.builder("ai.task.claimed")
+                    .description("抢占到的任务数")
+                    .tag("lane", lane.getValue())
+                    .register(meterRegistry));
+            saturatedCounters.put(lane, Counter.builder("ai.task.lane.saturated")
+                    .description("扫描时通道已满载、无法抢占新任务的次数")
+                    .tag("lane", lane.getValue())
+                    .register(meterRegistry));
+        }
+        for (Conflict conflict : Conflict.values()) {
+            conflictCounters.put(conflict, Counter.builder("ai.task.claim.conflicts")
+                    .description("抢占后未能执行或结果未能写回的任务数")
+                    .tag("reason", conflict.value)
+                    .register(meterRegistry));
+        }
+    }
+    
+    /**
+     * 注册通道的容量指标
+     */
+    void bindLane(LaneExecutor lane) {
+        String laneTag = lane.getLane().getValue();
+        Gauge.builder("ai.task.lane.in-flight", lane, LaneExecutor::getInFlight)
+                .description("通道在途任务数（含等待 AI 服务响应的任务）")
+                .tag("lane", laneTag)
+                .register(meterRegistry);
+        Gauge.builder("ai.task.lane.max-in-flight", lane, LaneExecutor::getMaxInFlight)
+                .description("通道在途任务数上限")
+                .tag("lane", laneTag)
+                .register(meterRegistry);
+        Gauge.builder("ai.task.lane.active-threads", lane, LaneExecutor::getActiveThreads)
+                .description("通道线程池活跃线程数")
+                .tag("lane", laneTag)
+                .register(meterRegistry);
+        Gauge.builder("ai.task.lane.queue.size", lane, LaneExecutor::getQueueSize)
+                .description("通道线程池队列中的任务数")
+                .tag("lane", laneTag)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 定时刷新集群内 pending / running 任务数
+     */
+    @Scheduled(fixedDelayString = "${task.metrics.backlog-refresh-interval:15000}")
+    public void refreshBacklog() {
+        List<Map<String, Object>> rows;
+        try {
+            rows = taskMapper.countActiveByTypeAndStatus();
+        } catch (Exception e) {
+            log.warn("刷新任务积压指标失败: {}", e.getMessage());
+            return;
+        }
+        backlog.values().forEach(counts -> counts.values().forEach(count -> count.set(0)));
+        for (Map<String, Object> row : rows) {
+            for (TaskType type : TaskType.values()) {
+                if (type.getValue().equals(row.get("task_type"))) {
+                    backlog.get(type).get(TaskStatus.fromValue((String) row.get("status")))
+                            .set(((Number) row.get("total")).longValue());
+                }
+            }
+        }
+    }
+    
+    Timer.Sample startClaim() {
+        return Timer.start(meterRegistry);
+    }
+    
+    void recordClaim(TaskLane lane, Timer.Sample sample, List<AiTask> tasks) {
+        sample.stop(claimTimers.get(lane));
+        claimedCounters.get(lane).increment(tasks.size());
+        for (AiTask task : tasks) {
+            if (task.getCreatedAt() != null && task.getStartedAt() != null) {
+                queueWaitTimers.get(task.getTaskType()).get(task.getLane())
+                        .record(Duration.between(task.getCreatedAt(), task.getStartedAt()));
+            }
+        }
+    }
+    
+    void recordSaturated(TaskLane lane) {
+        saturatedCounters.get(lane).increment();
+    }
+    
+    void recordConflict(Conflict conflict) {
+        conflictCounters.get(conflict).increment();
+    }
+    
+    void recordExecution(AiTask task, Outcome outcome, long startNanos) {
+        executionTimers.get(task.getTaskType()).get(outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (outcome == Outcome.LEASE_LOST) {
+            recordConflict(Conflict.LEASE_LOST);
+        }
+    }
+}
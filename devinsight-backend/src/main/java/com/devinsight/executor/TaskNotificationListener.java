@@ -0,0 +1,203 @@
+package com.devinsight.executor;
+
+import com.devinsight.enums.TaskStatus;
+import com.devinsight.service.ProjectMemberCache;
+import com.devinsight.service.TaskEventBroker;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 任务通知监听器
+ * 持有一个独立于连接池的 LISTEN 连接（LISTEN 会一直占用连接，不能从 Hikari 连接池借用，否则永久少一个业务连接）：
+ * - 收到新任务通知后立即唤醒调度器，定时扫描只作为兜底
+ * - 收到任务状态变化通知后交给 TaskEventBroker 推送给订阅的客户端
+ * - 收到项目成员变化通知后失效本地的成员关系缓存
+ */
+@Slf4j
+@Component
+public class TaskNotificationListener {
+    
+    /**
+     * 新任务（或退回 pending 的任务）通知通道，与 schema.sql 中的触发器保持一致
+     */
+    public static final String CHANNEL_TASK_PENDING = "ai_task_pending";
+    
+    /**
+     * 任务状态变化通知通道，payload 为 "任务ID,新状态"
+     */
+    public static final String CHANNEL_TASK_STATUS = "ai_task_status";
+    
+    /**
+     * 项目成员变化通知通道，payload 为 "项目ID,用户ID"
+     */
+    public static final String CHANNEL_PROJECT_MEMBER = "project_member_changed";
+    
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+    
+    @Autowired
+    private AiTaskScheduler taskScheduler;
+    
+    @Autowired
+    private TaskEventBroker eventBroker;
+    
+    @Autowired
+    private ProjectMemberCache memberCache;
+    
+    @Value("${task.notify.enabled:true}")
+    private boolean enabled;
+    
+    /**
+     * 单次等待通知的超时时间（毫秒），超时后检查是否需要退出
+     */
+    @Value("${task.notify.poll-timeout:1000}")
+    private int pollTimeout;
+    
+    /**
+     * 连接断开后的重连间隔（毫秒）
+     */
+    @Value("${task.notify.reconnect-delay:5000}")
+    private long reconnectDelay;
+    
+    /**
+     * 连续没有通知时检查连接是否存活的间隔（毫秒）
+     * 空闲连接可能被防火墙、NAT 静默断开，getNotifications 不会报错，只能主动检查
+     */
+    @Value("${task.notify.keepalive-interval:30000}")
+    private long keepaliveInterval;
+    
+    /**
+     * 连接存活检查的超时时间（秒）
+     */
+    @Value("${task.notify.keepalive-timeout:5}")
+    private int keepaliveTimeout;
+    
+    private volatile boolean running;
+    
+    private Thread listenerThread;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("任务通知监听已关闭，仅使用定时扫描");
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listenLoop, "ai-task-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+    
+    /**
+     * 监听循环：连接断开或存活检查失败后自动重连（重新 LISTEN），重连成功后补扫一次并清空成员关系缓存，
+     * 避免遗漏断线期间的通知
+     */
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = openConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL_TASK_PENDING);
+                    statement.execute("LISTEN " + CHANNEL_TASK_STATUS);
+                    statement.execute("LISTEN " + CHANNEL_PROJECT_MEMBER);
+                }
+                log.info("已开始监听任务通知: channels={},{},{}",
+                        CHANNEL_TASK_PENDING, CHANNEL_TASK_STATUS, CHANNEL_PROJECT_MEMBER);
+                memberCache.evictAll();
+                taskScheduler.wakeUp();
+                
+                long lastActivity = System.currentTimeMillis();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeout);
+                    long now = System.currentTimeMillis();
+                    if (notifications != null && notifications.length > 0) {
+                        dispatch(notifications);
+                        lastActivity = now;
+                    } else if (now - lastActivity >= keepaliveInterval) {
+                        if (!connection.isValid(keepaliveTimeout)) {
+                            throw new SQLException("通知连接存活检查失败");
+                        }
+                        lastActivity = now;
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("任务通知连接异常，{}ms 后重连: {}", reconnectDelay, e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 按数据源配置直接建立连接，不经过连接池
+     */
+    private Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+    
+    private void dispatch(PGNotification[] notifications) {
+        boolean wakeUp = false;
+        for (PGNotification notification : notifications) {
+            if (CHANNEL_TASK_PENDING.equals(notification.getName())) {
+                wakeUp = true;
+            } else if (CHANNEL_TASK_STATUS.equals(notification.getName())) {
+                publishStatus(notification.getParameter());
+            } else if (CHANNEL_PROJECT_MEMBER.equals(notification.getName())) {
+                evictMember(notification.getParameter());
+            }
+        }
+        if (wakeUp) {
+            taskScheduler.wakeUp();
+        }
+    }
+    
+    private void publishStatus(String payload) {
+        int separator = payload.indexOf(',');
+        try {
+            eventBroker.publish(Long.parseLong(payload.substring(0, separator)),
+                    TaskStatus.fromValue(payload.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log.warn("无法解析任务状态通知: payload={}", payload);
+        }
+    }
+    
+    private void evictMember(String payload) {
+        int separator = payload.indexOf(',');
+        try {
+            memberCache.evict(Long.parseLong(payload.substring(0, separator)),
+                    Long.parseLong(payload.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log.warn("无法解析项目成员通知: payload={}", payload);
+            memberCache.evictAll();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.devinsight.executor;
+
+import com.devinsight.entity.AiTask;
+import com.devinsight.mapper.AiTaskMapper;
+import com.devinsight.typehandler.CompressedText;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 任务输入 / 结果压缩（后台迁移）
+ * <p>
+ * 1. 回填：升级前的 TEXT 数据保留在 input_data_legacy / result_data_legacy 中（表结构变更只改名加列，不重写表），
+ *    这里按主键游标分批编码后写入 BYTEA 列并清空旧列
+ * 2. 重新压缩：已经以原始编码写入 BYTEA 列且超过阈值的已结束任务重新压缩，压缩后不会更小的行不改写
+ * <p>
+ * 每次只处理一批，批次之间间隔 interval，避免长事务和持续的 IO 压力；全部处理完后不再查询。
+ * 多个节点同时运行时会重复处理同一批数据，但写回结果相同，不影响正确性。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "task.compression.migration.enabled", havingValue = "true", matchIfMissing = true)
+public class TaskPayloadCompressionMigrator {
+    
+    @Autowired
+    private AiTaskMapper taskMapper;
+    
+    @Value("${task.compression.migration.batch-size:100}")
+    private int batchSize;
+    
+    /**
+     * 已处理到的任务ID
+     */
+    private long lastId;
+    
+    /**
+     * 回填是否已完成（完成后从头开始重新压缩）
+     */
+    private boolean backfilled;
+    
+    private volatile boolean finished;
+    
+    private long backfilledRows;
+    
+    private long migratedRows;
+    
+    private long savedBytes;
+    
+    /**
+     * 处理一批数据
+     */
+    @Scheduled(fixedDelayString = "${task.compression.migration.interval:1000}", initialDelay = 10000)
+    public void migrateBatch() {
+        if (finished) {
+            return;
+        }
+        try {
+            if (!backfilled) {
+                backfillBatch();
+                return;
+            }
+            List<AiTask> tasks = taskMapper.selectUncompressedPayloads(lastId,
+                    CompressedText.COMPRESSION_THRESHOLD, batchSize);
+            if (tasks.isEmpty()) {
+                finished = true;
+                log.info("任务数据压缩迁移完成: rows={}, savedBytes={}", migratedRows, savedBytes);
+                return;
+            }
+            for (AiTask task : tasks) {
+                CompressedText input = recompress(task.getInputData());
+                CompressedText result = recompress(task.getResultData());
+                if (input != task.getInputData() || result != task.getResultData()) {
+                    taskMapper.updatePayloads(task.getId(), input, result);
+                    migratedRows++;
+                    savedBytes += sizeOf(task.getInputData()) + sizeOf(task.getResultData())
+                            - sizeOf(input) - sizeOf(result);
+                }
+                lastId = task.getId();
+            }
+            log.debug("任务数据压缩迁移进度: lastId={}, rows={}, savedBytes={}", lastId, migratedRows, savedBytes);
+        } catch (Exception e) {
+            log.error("任务数据压缩迁移失败，稍后重试: lastId={}", lastId, e);
+        }
+    }
+    
+    private void backfillBatch() {
+        List<Map<String, Object>> rows = taskMapper.selectLegacyPayloads(lastId, batchSize);
+        if (rows.isEmpty()) {
+            backfilled = true;
+            lastId = 0;
+            log.info("任务数据回填完成: rows={}", backfilledRows);
+            return;
+        }
+        for (Map<String, Object> row : rows) {
+            long id = ((Number) row.get("id")).longValue();
+            taskMapper.backfillPayloads(id, CompressedText.of((String) row.get("input_data_legacy")),
+                    CompressedText.of((String) row.get("result_data_legacy")));
+            backfilledRows++;
+            lastId = id;
+        }
+        log.debug("任务数据回填进度: lastId={}, rows={}", lastId, backfilledRows);
+    }
+    
+    private CompressedText recompress(CompressedText text) {
+        return text != null ? text.recompress() : null;
+    }
+    
+    private long sizeOf(CompressedText text) {
+        return text != null ? text.getEncodedSize() : 0;
+    }
+}
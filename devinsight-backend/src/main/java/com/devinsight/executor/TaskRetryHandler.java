@@ -0,0 +1,55 @@
+package com.devinsight.executor;
+
+import com.devinsight.config.TaskRetryProperties;
+import com.devinsight.entity.AiTask;
+import com.devinsight.exception.TaskExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 任务重试判定
+ * 可重试的失败按指数退避 + 抖动重新排队，尝试次数用完后进入死信
+ */
+@Component
+public class TaskRetryHandler {
+    
+    @Autowired
+    private TaskRetryProperties retryProperties;
+    
+    /**
+     * 判断失败是否值得重试
+     * 输入错误（IllegalArgumentException）和显式标记为不可重试的异常直接失败
+     */
+    public boolean isRetryable(Throwable e) {
+        if (e instanceof TaskExecutionException) {
+            return ((TaskExecutionException) e).isRetryable();
+        }
+        return !(e instanceof IllegalArgumentException);
+    }
+    
+    /**
+     * 判断任务是否还有剩余尝试次数
+     */
+    public boolean hasAttemptsLeft(AiTask task) {
+        int attempts = task.getAttemptCount() != null ? task.getAttemptCount() : 0;
+        return attempts < retryProperties.getPolicy(task.getTaskType()).getMaxAttempts();
+    }
+    
+    /**
+     * 计算下一次重试的延迟：initialDelay × multiplier^(attempt-1)，不超过 maxDelay，再叠加抖动
+     *
+     * @param task 已执行失败的任务（attemptCount 为已尝试次数）
+     * @return 延迟毫秒数
+     */
+    public long nextDelayMillis(AiTask task) {
+        TaskRetryProperties.Policy policy = retryProperties.getPolicy(task.getTaskType());
+        int attempts = Math.max(1, task.getAttemptCount() != null ? task.getAttemptCount() : 1);
+        double delay = policy.getInitialDelay() * Math.pow(policy.getMultiplier(), attempts - 1);
+        delay = Math.min(delay, policy.getMaxDelay());
+        double jitter = Math.min(Math.max(policy.getJitter(), 0), 1);
+        delay = delay * (1 - jitter + ThreadLocalRandom.current().nextDouble() * 2 * jitter);
+        return Math.max(0, Math.round(delay));
+    }
+}
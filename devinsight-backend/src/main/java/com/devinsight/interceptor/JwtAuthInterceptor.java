@@ -24,11 +24,11 @@ public class JwtAuthInterceptor implements HandlerInterceptor {
         
         String token = authHeader.substring(7);
         
-        if (!jwtUtil.validateToken(token)) {
+        Long userId = jwtUtil.verifyToken(token);
+        if (userId == null) {
             throw new BusinessException(401, "认证令牌无效或已过期");
         }
         
-        Long userId = jwtUtil.getUserIdFromToken(token);
         request.setAttribute("userId", userId);
         
         return true;
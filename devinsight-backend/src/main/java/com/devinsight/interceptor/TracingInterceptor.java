@@ -0,0 +1,57 @@
+package com.devinsight.interceptor;
+
+import com.devinsight.tracing.TaskTracer;
+import com.devinsight.tracing.TraceSpan;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * 为每个 API 请求创建 span（继承请求头中的 traceparent），并在响应头中返回 traceparent，
+ * 日志 MDC 中的 traceId 与之相同，便于把日志、请求和任务执行关联起来
+ * SSE / 长轮询等异步请求的 span 在处理线程返回时结束，不包含之后的推送时间
+ */
+@Component
+public class TracingInterceptor implements AsyncHandlerInterceptor {
+    
+    public static final String TRACE_PARENT_HEADER = "traceparent";
+    
+    private static final String MDC_TRACE_ID = "traceId";
+    
+    @Autowired
+    private TaskTracer tracer;
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        TraceSpan span = tracer.beginRequest(request.getHeader(TRACE_PARENT_HEADER),
+                request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI()));
+        span.setAttribute("http.method", request.getMethod());
+        span.setAttribute("http.target", request.getRequestURI());
+        response.setHeader(TRACE_PARENT_HEADER, span.toTraceParent());
+        MDC.put(MDC_TRACE_ID, span.getTraceId());
+        return true;
+    }
+    
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        tracer.endRequest(response.getStatus(), null);
+        MDC.remove(MDC_TRACE_ID);
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        tracer.endRequest(response.getStatus(), ex);
+        MDC.remove(MDC_TRACE_ID);
+    }
+}
@@ -2,14 +2,19 @@ package com.devinsight.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.devinsight.entity.AiTask;
+import com.devinsight.typehandler.CompressedText;
 import com.devinsight.enums.TaskStatus;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * AI 任务 Mapper
@@ -17,6 +22,79 @@ import java.util.List;
 @Mapper
 public interface AiTaskMapper extends BaseMapper<AiTask> {
     
+    /**
+     * 列表查询的列（不含 input_data / result_data / error_message 等大字段）
+     */
+    String SUMMARY_COLUMNS = "id, project_id, user_id, task_type, status, priority, lane, input_size, " +
+            "attempt_count, created_at, started_at, completed_at, next_attempt_at";
+    
+    /**
+     * 除输入、结果外的全部列
+     */
+    String DETAIL_COLUMNS = "id, project_id, user_id, task_type, status, priority, estimated_cost, lane, " +
+            "content_hash, input_ref, input_size, error_message, created_at, started_at, completed_at, " +
+            "worker_id, attempt_count, heartbeat_at, lease_expires_at, next_attempt_at, trace_parent";
+    
+    /**
+     * 读取输入：尚未迁移的行回退到升级前的 TEXT 列，并补上原始编码标记 0x00
+     * （迁移完成后的版本改回直接读取 input_data）
+     */
+    String INPUT_DATA_COLUMN =
+            "COALESCE(input_data, decode('00', 'hex') || convert_to(input_data_legacy, 'UTF8')) AS input_data";
+    
+    /**
+     * 读取结果：同 {@link #INPUT_DATA_COLUMN}
+     */
+    String RESULT_DATA_COLUMN =
+            "COALESCE(result_data, decode('00', 'hex') || convert_to(result_data_legacy, 'UTF8')) AS result_data";
+    
+    /**
+     * 预先分配任务主键
+     * 多行插入时主键由调用方写入，任务与主键的对应关系不依赖 RETURNING 的返回顺序
+     *
+     * @param count 数量
+     * @return 新的任务ID
+     */
+    @Select("SELECT nextval(pg_get_serial_sequence('ai_task', 'id')) FROM generate_series(1, #{count})")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<Long> allocateIds(@Param("count") int count);
+    
+    /**
+     * 多行插入任务（主键已由 {@link #allocateIds} 分配）
+     *
+     * @param tasks 待插入的任务
+     * @return 插入行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO ai_task (id, project_id, user_id, task_type, status, priority, estimated_cost, lane, " +
+            "content_hash, input_data, input_size, result_data, created_at, started_at, completed_at, trace_parent) VALUES " +
+            "<foreach collection='tasks' item='t' separator=','>" +
+            "(#{t.id}, #{t.projectId}, #{t.userId}, #{t.taskType.value}, #{t.status.value}, #{t.priority}, " +
+            "#{t.estimatedCost}, #{t.lane.value}, #{t.contentHash}, #{t.inputData}, #{t.inputSize}, #{t.resultData}, " +
+            "#{t.createdAt}, #{t.startedAt}, #{t.completedAt}, #{t.traceParent})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("tasks") List<AiTask> tasks);
+    
+    /**
+     * 批量查询相同内容最近一次成功的结果（结果缓存的数据库层）
+     * 每个 (项目, 任务类型, 内容哈希) 只返回最近的一条；项目和哈希分别按 ANY 匹配，调用方按完整的键筛选
+     *
+     * @param projectIds    项目ID
+     * @param contentHashes 内容哈希
+     * @param since         结果最早完成时间（TTL）
+     * @return 任务（只包含 project_id、task_type、content_hash、result_data、completed_at）
+     */
+    @Select("SELECT DISTINCT ON (project_id, task_type, content_hash) project_id, task_type, content_hash, " +
+            RESULT_DATA_COLUMN + ", completed_at FROM ai_task " +
+            "WHERE project_id = ANY(#{projectIds, typeHandler=org.apache.ibatis.type.ArrayTypeHandler}) " +
+            "AND content_hash = ANY(#{contentHashes, typeHandler=org.apache.ibatis.type.ArrayTypeHandler}) " +
+            "AND status = 'success' AND completed_at >= #{since} " +
+            "ORDER BY project_id, task_type, content_hash, completed_at DESC")
+    List<AiTask> selectLatestSuccessResults(@Param("projectIds") Long[] projectIds,
+                                            @Param("contentHashes") String[] contentHashes,
+                                            @Param("since") LocalDateTime since);
+    
     /**
      * 查询指定状态的任务（用于定时扫描）
      *
@@ -24,62 +102,410 @@ public interface AiTaskMapper extends BaseMapper<AiTask> {
      * @param limit  限制数量
      * @return 任务列表
      */
-    @Select("SELECT * FROM ai_task WHERE status = #{status} ORDER BY created_at ASC LIMIT #{limit}")
+    @Select("SELECT " + DETAIL_COLUMNS + ", " + INPUT_DATA_COLUMN + " FROM ai_task " +
+            "WHERE status = #{status} ORDER BY created_at ASC LIMIT #{limit}")
     List<AiTask> selectByStatus(@Param("status") String status, @Param("limit") int limit);
     
     /**
-     * 乐观锁：尝试将任务状态从 pending 更新为 running
+     * 按任务类型统计 pending / running 任务数（调度指标定时刷新）
      *
-     * @param taskId 任务ID
-     * @return 影响行数（1表示成功，0表示失败）
+     * @return 每行包含 task_type、status、total
+     */
+    @Select("SELECT task_type, status, COUNT(*) AS total FROM ai_task " +
+            "WHERE status IN ('pending', 'running') GROUP BY task_type, status")
+    List<Map<String, Object>> countActiveByTypeAndStatus();
+    
+    /**
+     * 按项目公平分配批量抢占指定通道的 pending 任务（单条语句完成查询与状态更新）
+     * <p>
+     * 1. active：递归 CTE 跳跃扫描部分索引，只取出该通道有已到重试时间的 pending 任务的项目ID，
+     *    不读取整个队列；全部任务都在退避中的项目不参与本轮分配
+     * 2. quota：结合 project_task_quota 得到各项目权重、并发上限、当前 running 数与可执行任务数（最多数到 limit）
+     * 3. slot / share：先分配名额再锁行。每个项目的第 n 个名额的虚拟完成时间为 (running + n) / 权重
+     *    （加权轮询，已占用较多并发的项目排在后面），n 不超过剩余并发额度和可执行任务数；
+     *    按虚拟完成时间取前 limit 个名额，得到每个项目本次最多抢占的数量
+     * 4. candidate：每个项目按优先级、提交顺序只锁定分到的名额数量的已到重试时间的任务，
+     *    整条语句最多锁定 limit 行；任务被其他节点并发锁定时本轮少抢，剩余名额留给下一轮
+     * <p>
+     * FOR UPDATE SKIP LOCKED 保证多个节点并发抢占时拿到互不重叠的任务，不会互相等待；
+     * 租约到期时间使用数据库时钟，避免节点之间的时钟偏差
+     *
+     * @param lane              执行通道
+     * @param limit             最多抢占数量
+     * @param defaultMaxRunning 未配置配额的项目的并发上限
+     * @param workerId          当前节点标识
+     * @param leaseMillis       租约时长（毫秒）
+     * @param now               开始执行时间
+     * @return 抢占成功的任务列表（状态已是 running，不包含结果）
      */
-    @Update("UPDATE ai_task SET status = 'running', started_at = #{now} " +
-            "WHERE id = #{taskId} AND status = 'pending'")
-    int updateToRunning(@Param("taskId") Long taskId, @Param("now") LocalDateTime now);
+    @Select("WITH RECURSIVE active AS (" +
+            "  (SELECT project_id FROM ai_task WHERE status = 'pending' AND lane = #{lane} " +
+            "   AND (next_attempt_at IS NULL OR next_attempt_at <= LOCALTIMESTAMP) " +
+            "   ORDER BY project_id LIMIT 1) " +
+            "  UNION ALL " +
+            "  SELECT (SELECT t.project_id FROM ai_task t " +
+            "          WHERE t.status = 'pending' AND t.lane = #{lane} AND t.project_id > a.project_id " +
+            "            AND (t.next_attempt_at IS NULL OR t.next_attempt_at <= LOCALTIMESTAMP) " +
+            "          ORDER BY t.project_id LIMIT 1) " +
+            "  FROM active a WHERE a.project_id IS NOT NULL" +
+            "), quota AS (" +
+            "  SELECT a.project_id, COALESCE(q.weight, 1) AS weight, " +
+            "         COALESCE(q.max_running, #{defaultMaxRunning}) AS max_running, " +
+            "         (SELECT COUNT(*) FROM ai_task r WHERE r.project_id = a.project_id AND r.status = 'running') AS running, " +
+            "         (SELECT COUNT(*) FROM (SELECT 1 FROM ai_task p " +
+            "            WHERE p.project_id = a.project_id AND p.status = 'pending' AND p.lane = #{lane} " +
+            "              AND (p.next_attempt_at IS NULL OR p.next_attempt_at <= LOCALTIMESTAMP) " +
+            "            LIMIT #{limit}) p) AS runnable " +
+            "  FROM active a LEFT JOIN project_task_quota q ON q.project_id = a.project_id " +
+            "  WHERE a.project_id IS NOT NULL" +
+            "), slot AS (" +
+            "  SELECT q.project_id FROM quota q " +
+            "  CROSS JOIN LATERAL generate_series(1, LEAST(q.max_running - q.running, q.runnable, #{limit})) AS s(n) " +
+            "  ORDER BY (q.running + s.n)::float8 / q.weight, q.project_id " +
+            "  LIMIT #{limit}" +
+            "), share AS (" +
+            "  SELECT project_id, COUNT(*) AS slots FROM slot GROUP BY project_id" +
+            "), candidate AS (" +
+            "  SELECT l.id FROM share s CROSS JOIN LATERAL (" +
+            "    SELECT t.id FROM ai_task t " +
+            "    WHERE t.project_id = s.project_id AND t.status = 'pending' AND t.lane = #{lane} " +
+            "      AND (t.next_attempt_at IS NULL OR t.next_attempt_at <= LOCALTIMESTAMP) " +
+            "    ORDER BY t.priority DESC, t.created_at, t.id " +
+            "    LIMIT s.slots " +
+            "    FOR UPDATE SKIP LOCKED" +
+            "  ) l" +
+            ") " +
+            "UPDATE ai_task SET status = 'running', started_at = #{now}, worker_id = #{workerId}, " +
+            "attempt_count = attempt_count + 1, next_attempt_at = NULL, heartbeat_at = LOCALTIMESTAMP, " +
+            "lease_expires_at = LOCALTIMESTAMP + #{leaseMillis} * INTERVAL '1 millisecond' " +
+            "WHERE id IN (SELECT id FROM candidate) " +
+            "RETURNING " + DETAIL_COLUMNS + ", " + INPUT_DATA_COLUMN)
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<AiTask> claimPendingTasks(@Param("lane") String lane,
+                                   @Param("limit") int limit,
+                                   @Param("defaultMaxRunning") int defaultMaxRunning,
+                                   @Param("workerId") String workerId,
+                                   @Param("leaseMillis") long leaseMillis,
+                                   @Param("now") LocalDateTime now);
+    
+    /**
+     * 将已抢占但未能投递执行的任务退回 pending（未实际执行，不计入尝试次数）
+     *
+     * @param taskId   任务ID
+     * @param workerId 当前节点标识
+     * @return 影响行数
+     */
+    @Update("UPDATE ai_task SET status = 'pending', started_at = NULL, worker_id = NULL, " +
+            "heartbeat_at = NULL, lease_expires_at = NULL, attempt_count = attempt_count - 1 " +
+            "WHERE id = #{taskId} AND status = 'running' AND worker_id = #{workerId}")
+    int resetToPending(@Param("taskId") Long taskId, @Param("workerId") String workerId);
+    
+    /**
+     * 心跳：为本节点正在执行的任务续租
+     *
+     * @param taskIds     正在执行的任务ID
+     * @param workerId    当前节点标识
+     * @param leaseMillis 租约时长（毫秒）
+     * @return 续租成功的行数
+     */
+    @Update("<script>" +
+            "UPDATE ai_task SET heartbeat_at = LOCALTIMESTAMP, " +
+            "lease_expires_at = LOCALTIMESTAMP + #{leaseMillis} * INTERVAL '1 millisecond' " +
+            "WHERE status = 'running' AND worker_id = #{workerId} AND id IN " +
+            "<foreach collection='taskIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int extendLeases(@Param("taskIds") Collection<Long> taskIds,
+                     @Param("workerId") String workerId,
+                     @Param("leaseMillis") long leaseMillis);
+    
+    /**
+     * 租约过期且尝试次数已用完的任务直接进入死信
+     *
+     * @param taskType     任务类型
+     * @param maxAttempts  该任务类型的最大尝试次数
+     * @param errorMessage 错误信息
+     * @param now          完成时间
+     * @return 进入死信的任务ID
+     */
+    @Select("UPDATE ai_task SET status = 'dead_letter', error_message = #{errorMessage}, completed_at = #{now}, " +
+            "worker_id = NULL, lease_expires_at = NULL " +
+            "WHERE status = 'running' AND lease_expires_at < LOCALTIMESTAMP " +
+            "AND task_type = #{taskType} AND attempt_count >= #{maxAttempts} " +
+            "RETURNING id")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<Long> deadLetterExpiredLeases(@Param("taskType") String taskType,
+                                       @Param("maxAttempts") int maxAttempts,
+                                       @Param("errorMessage") String errorMessage,
+                                       @Param("now") LocalDateTime now);
+    
+    /**
+     * 租约过期的任务退回 pending，立即可被重新抢占（触发器会发出 NOTIFY）
+     * 租约过期本身已经经过了一个租约周期，不再额外退避
+     *
+     * @return 被回收的任务ID
+     */
+    @Select("UPDATE ai_task SET status = 'pending', started_at = NULL, worker_id = NULL, " +
+            "heartbeat_at = NULL, lease_expires_at = NULL " +
+            "WHERE status = 'running' AND lease_expires_at < LOCALTIMESTAMP " +
+            "RETURNING id")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<Long> reclaimExpiredLeases();
     
     /**
      * 更新任务为成功状态
+     * 只有仍持有租约的节点才能写入，租约被回收后的迟到结果会被丢弃
      *
      * @param taskId     任务ID
+     * @param workerId   当前节点标识
      * @param resultData 结果数据
      * @param now        完成时间
-     * @return 影响行数
+     * @return 影响行数（0 表示租约已丢失）
      */
-    @Update("UPDATE ai_task SET status = 'success', result_data = #{resultData}, completed_at = #{now} " +
-            "WHERE id = #{taskId}")
+    @Update("UPDATE ai_task SET status = 'success', result_data = #{resultData}, completed_at = #{now}, " +
+            "lease_expires_at = NULL " +
+            "WHERE id = #{taskId} AND status = 'running' AND worker_id = #{workerId}")
     int updateToSuccess(@Param("taskId") Long taskId,
-                        @Param("resultData") String resultData,
+                        @Param("workerId") String workerId,
+                        @Param("resultData") CompressedText resultData,
                         @Param("now") LocalDateTime now);
     
     /**
-     * 更新任务为失败状态
+     * 更新任务为失败状态（不可重试的失败）
      *
      * @param taskId       任务ID
+     * @param workerId     当前节点标识
      * @param errorMessage 错误信息
      * @param now          完成时间
-     * @return 影响行数
+     * @return 影响行数（0 表示租约已丢失）
      */
-    @Update("UPDATE ai_task SET status = 'failed', error_message = #{errorMessage}, completed_at = #{now} " +
-            "WHERE id = #{taskId}")
+    @Update("UPDATE ai_task SET status = 'failed', error_message = #{errorMessage}, completed_at = #{now}, " +
+            "lease_expires_at = NULL " +
+            "WHERE id = #{taskId} AND status = 'running' AND worker_id = #{workerId}")
     int updateToFailed(@Param("taskId") Long taskId,
+                       @Param("workerId") String workerId,
                        @Param("errorMessage") String errorMessage,
                        @Param("now") LocalDateTime now);
     
     /**
-     * 查询项目下的任务列表
+     * 失败任务退回 pending，等到 next_attempt_at 之后才能被重新抢占
+     *
+     * @param taskId       任务ID
+     * @param workerId     当前节点标识
+     * @param errorMessage 本次失败的错误信息
+     * @param delayMillis  重试延迟（毫秒，基于数据库时钟）
+     * @return 影响行数（0 表示租约已丢失）
+     */
+    @Update("UPDATE ai_task SET status = 'pending', error_message = #{errorMessage}, " +
+            "next_attempt_at = LOCALTIMESTAMP + #{delayMillis} * INTERVAL '1 millisecond', " +
+            "started_at = NULL, worker_id = NULL, heartbeat_at = NULL, lease_expires_at = NULL " +
+            "WHERE id = #{taskId} AND status = 'running' AND worker_id = #{workerId}")
+    int updateToRetry(@Param("taskId") Long taskId,
+                      @Param("workerId") String workerId,
+                      @Param("errorMessage") String errorMessage,
+                      @Param("delayMillis") long delayMillis);
+    
+    /**
+     * 重试次数用完的任务进入死信（终态，需人工处理）
+     *
+     * @param taskId       任务ID
+     * @param workerId     当前节点标识
+     * @param errorMessage 最后一次失败的错误信息
+     * @param now          完成时间
+     * @return 影响行数（0 表示租约已丢失）
+     */
+    @Update("UPDATE ai_task SET status = 'dead_letter', error_message = #{errorMessage}, completed_at = #{now}, " +
+            "lease_expires_at = NULL " +
+            "WHERE id = #{taskId} AND status = 'running' AND worker_id = #{workerId}")
+    int updateToDeadLetter(@Param("taskId") Long taskId,
+                           @Param("workerId") String workerId,
+                           @Param("errorMessage") String errorMessage,
+                           @Param("now") LocalDateTime now);
+    
+    /**
+     * 查询尚未迁移的升级前 TEXT 数据（按主键游标分批）
+     *
+     * @param afterId 上一批最后一个任务ID
+     * @param limit   最大返回数量
+     * @return 每行包含 id、input_data_legacy、result_data_legacy
+     */
+    @Select("SELECT id, input_data_legacy, result_data_legacy FROM ai_task " +
+            "WHERE id > #{afterId} AND (input_data_legacy IS NOT NULL OR result_data_legacy IS NOT NULL) " +
+            "ORDER BY id LIMIT #{limit}")
+    List<Map<String, Object>> selectLegacyPayloads(@Param("afterId") Long afterId, @Param("limit") int limit);
+    
+    /**
+     * 把升级前的 TEXT 数据写入 BYTEA 列并清空旧列
+     * 新列已有值（迁移期间任务完成写入了结果）时保留新值
+     *
+     * @param taskId     任务ID
+     * @param inputData  编码后的输入
+     * @param resultData 编码后的结果
+     * @return 影响行数
+     */
+    @Update("UPDATE ai_task SET input_data = COALESCE(input_data, #{inputData}), " +
+            "result_data = COALESCE(result_data, #{resultData}), " +
+            "input_data_legacy = NULL, result_data_legacy = NULL WHERE id = #{taskId}")
+    int backfillPayloads(@Param("taskId") Long taskId,
+                         @Param("inputData") CompressedText inputData,
+                         @Param("resultData") CompressedText resultData);
+    
+    /**
+     * 查询需要重新压缩的已结束任务（按主键游标分批）
+     * 只取编码标记为原始（0x00）且超过压缩阈值的行；已结束的任务输入和结果都不会再被修改
+     *
+     * @param afterId 上一批最后一个任务ID
+     * @param minSize 压缩阈值（字节）
+     * @param limit   最大返回数量
+     * @return 任务列表（只包含 id、input_data、result_data）
+     */
+    @Select("SELECT id, input_data, result_data FROM ai_task " +
+            "WHERE id > #{afterId} AND status IN ('success', 'failed', 'dead_letter') " +
+            "AND ((get_byte(input_data, 0) = 0 AND octet_length(input_data) > #{minSize}) " +
+            "OR (get_byte(result_data, 0) = 0 AND octet_length(result_data) > #{minSize})) " +
+            "ORDER BY id LIMIT #{limit}")
+    List<AiTask> selectUncompressedPayloads(@Param("afterId") Long afterId,
+                                            @Param("minSize") int minSize,
+                                            @Param("limit") int limit);
+    
+    /**
+     * 写回重新压缩的输入和结果
+     *
+     * @param taskId     任务ID
+     * @param inputData  输入数据
+     * @param resultData 结果数据
+     * @return 影响行数
+     */
+    @Update("UPDATE ai_task SET input_data = #{inputData}, result_data = #{resultData} WHERE id = #{taskId}")
+    int updatePayloads(@Param("taskId") Long taskId,
+                       @Param("inputData") CompressedText inputData,
+                       @Param("resultData") CompressedText resultData);
+    
+    /**
+     * 查询项目下所有任务的上传输入引用（删除项目前收集需要删除的文件）
      *
      * @param projectId 项目ID
+     * @return 输入引用
+     */
+    @Select("SELECT input_ref FROM ai_task WHERE project_id = #{projectId} AND input_ref IS NOT NULL")
+    List<String> selectInputRefsByProjectId(@Param("projectId") Long projectId);
+    
+    /**
+     * 清除超过保留期的已结束任务的上传输入引用，返回被清除的引用（由调用方删除文件）
+     * 先清引用再删文件：删除文件失败只会留下无人引用的文件，不会出现引用指向不存在的文件；
+     * SKIP LOCKED 保证多个节点同时清理时互不重叠
+     *
+     * @param before 完成时间早于该时间的任务
+     * @param limit  最多处理数量
+     * @return 被清除的输入引用
+     */
+    @Select("WITH expired AS (" +
+            "  SELECT id, input_ref FROM ai_task " +
+            "  WHERE input_ref IS NOT NULL AND status IN ('success', 'failed', 'dead_letter') " +
+            "    AND completed_at < #{before} " +
+            "  ORDER BY completed_at LIMIT #{limit} FOR UPDATE SKIP LOCKED" +
+            ") " +
+            "UPDATE ai_task t SET input_ref = NULL FROM expired e WHERE t.id = e.id " +
+            "RETURNING e.input_ref")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<String> clearExpiredInputRefs(@Param("before") LocalDateTime before, @Param("limit") int limit);
+    
+    /**
+     * 查询任务状态（只取状态相关的列）
+     *
+     * @param taskId 任务ID
+     * @return 任务（只包含 id、project_id、status），不存在返回 null
+     */
+    @Select("SELECT id, project_id, status FROM ai_task WHERE id = #{taskId}")
+    AiTask selectStatus(@Param("taskId") Long taskId);
+    
+    /**
+     * 查询任务详情（包含输入和结果）
+     *
+     * @param taskId 任务ID
+     * @return 任务，不存在返回 null
+     */
+    @Select("SELECT " + DETAIL_COLUMNS + ", " + INPUT_DATA_COLUMN + ", " + RESULT_DATA_COLUMN +
+            " FROM ai_task WHERE id = #{taskId}")
+    AiTask selectDetail(@Param("taskId") Long taskId);
+    
+    /**
+     * 查询任务的执行时间线信息（只取状态和时间相关的列）
+     *
+     * @param taskId 任务ID
+     * @return 任务，不存在返回 null
+     */
+    @Select("SELECT id, project_id, task_type, status, lane, attempt_count, trace_parent, " +
+            "created_at, started_at, completed_at FROM ai_task WHERE id = #{taskId}")
+    AiTask selectTraceInfo(@Param("taskId") Long taskId);
+    
+    /**
+     * 查询任务输入（只取输入相关的列）
+     *
+     * @param taskId 任务ID
+     * @return 任务（只包含 id、project_id、input_data、input_ref），不存在返回 null
+     */
+    @Select("SELECT id, project_id, " + INPUT_DATA_COLUMN + ", input_ref FROM ai_task WHERE id = #{taskId}")
+    AiTask selectInputPayload(@Param("taskId") Long taskId);
+    
+    /**
+     * 查询任务结果（只取结果相关的列）
+     *
+     * @param taskId 任务ID
+     * @return 任务（只包含 id、project_id、result_data），不存在返回 null
+     */
+    @Select("SELECT id, project_id, " + RESULT_DATA_COLUMN + " FROM ai_task WHERE id = #{taskId}")
+    AiTask selectResultPayload(@Param("taskId") Long taskId);
+    
+    /**
+     * 分页查询项目下的任务（按 created_at DESC, id DESC 的键集分页）
+     * 游标为上一页最后一条的 (created_at, id)，由 idx_task_project_page / idx_task_project_status_page 支撑，
+     * 翻到多深都只扫描 limit 行；只查询列表需要的列，不读取输入和结果
+     *
+     * @param projectId       项目ID
+     * @param status          状态过滤（可选）
+     * @param taskType        类型过滤（可选）
+     * @param cursorCreatedAt 游标：上一页最后一条的创建时间（首页为 null）
+     * @param cursorId        游标：上一页最后一条的ID
+     * @param limit           最大返回数量
      * @return 任务列表
      */
-    @Select("SELECT * FROM ai_task WHERE project_id = #{projectId} ORDER BY created_at DESC")
-    List<AiTask> selectByProjectId(@Param("projectId") Long projectId);
+    @Select("<script>" +
+            "SELECT " + SUMMARY_COLUMNS + " FROM ai_task WHERE project_id = #{projectId} " +
+            "<if test='status != null'>AND status = #{status} </if>" +
+            "<if test='taskType != null'>AND task_type = #{taskType} </if>" +
+            "<if test='cursorCreatedAt != null'>AND (created_at, id) &lt; (#{cursorCreatedAt}, #{cursorId}) </if>" +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<AiTask> selectPageByProjectId(@Param("projectId") Long projectId,
+                                       @Param("status") String status,
+                                       @Param("taskType") String taskType,
+                                       @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                       @Param("cursorId") Long cursorId,
+                                       @Param("limit") int limit);
     
     /**
-     * 查询用户的任务列表
+     * 分页查询用户的任务（按 created_at DESC, id DESC 的键集分页）
+     * 只查询列表需要的列，不读取输入和结果
      *
-     * @param userId 用户ID
+     * @param userId          用户ID
+     * @param status          状态过滤（可选）
+     * @param taskType        类型过滤（可选）
+     * @param cursorCreatedAt 游标：上一页最后一条的创建时间（首页为 null）
+     * @param cursorId        游标：上一页最后一条的ID
+     * @param limit           最大返回数量
      * @return 任务列表
      */
-    @Select("SELECT * FROM ai_task WHERE user_id = #{userId} ORDER BY created_at DESC")
-    List<AiTask> selectByUserId(@Param("userId") Long userId);
+    @Select("<script>" +
+            "SELECT " + SUMMARY_COLUMNS + " FROM ai_task WHERE user_id = #{userId} " +
+            "<if test='status != null'>AND status = #{status} </if>" +
+            "<if test='taskType != null'>AND task_type = #{taskType} </if>" +
+            "<if test='cursorCreatedAt != null'>AND (created_at, id) &lt; (#{cursorCreatedAt}, #{cursorId}) </if>" +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<AiTask> selectPageByUserId(@Param("userId") Long userId,
+                                    @Param("status") String status,
+                                    @Param("taskType") String taskType,
+                                    @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                    @Param("cursorId") Long cursorId,
+                                    @Param("limit") int limit);
 }
@@ -0,0 +1,42 @@
+package com.devinsight.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.devinsight.entity.ExceptionCluster;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+@Mapper
+public interface ExceptionClusterMapper extends BaseMapper<ExceptionCluster> {
+    
+    /**
+     * 记录异常出现：聚类不存在则创建，存在则累加次数并刷新最近出现信息
+     *
+     * @param cluster 本次出现的聚类信息（occurrenceCount 为本次新增次数）
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO exception_cluster (project_id, fingerprint, exception_type, root_cause_type, " +
+            "message_sample, top_frame, occurrence_count, first_seen_at, last_seen_at, last_task_id) " +
+            "VALUES (#{projectId}, #{fingerprint}, #{exceptionType}, #{rootCauseType}, #{messageSample}, " +
+            "#{topFrame}, #{occurrenceCount}, #{firstSeenAt}, #{lastSeenAt}, #{lastTaskId}) " +
+            "ON CONFLICT (project_id, fingerprint) DO UPDATE SET " +
+            "occurrence_count = exception_cluster.occurrence_count + EXCLUDED.occurrence_count, " +
+            "last_seen_at = GREATEST(exception_cluster.last_seen_at, EXCLUDED.last_seen_at), " +
+            "message_sample = EXCLUDED.message_sample, " +
+            "last_task_id = EXCLUDED.last_task_id")
+    int upsertOccurrence(ExceptionCluster cluster);
+    
+    /**
+     * 查询项目中出现次数最多的异常
+     *
+     * @param projectId 项目ID
+     * @param limit     返回数量
+     * @return 异常聚类列表
+     */
+    @Select("SELECT * FROM exception_cluster WHERE project_id = #{projectId} " +
+            "ORDER BY occurrence_count DESC, last_seen_at DESC LIMIT #{limit}")
+    List<ExceptionCluster> selectTopByProject(@Param("projectId") Long projectId, @Param("limit") int limit);
+}
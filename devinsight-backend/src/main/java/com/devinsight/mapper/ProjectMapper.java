@@ -2,8 +2,36 @@ package com.devinsight.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.devinsight.entity.Project;
+import com.devinsight.vo.ProjectVO;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 @Mapper
 public interface ProjectMapper extends BaseMapper<Project> {
+    
+    /**
+     * 分页查询用户参与的项目（一次联表查出项目、所有者名称和当前用户角色）
+     * 按项目ID倒序键集分页：cursorProjectId 为上一页最后一个项目ID，首页为null
+     *
+     * @param userId          用户ID
+     * @param cursorProjectId 游标项目ID
+     * @param limit           查询数量
+     * @return 项目列表
+     */
+    @Select("<script>" +
+            "SELECT p.id, p.name, p.description, p.owner_id, u.username AS owner_name, pm.role AS my_role, " +
+            "p.result_cache_enabled, p.created_at, p.updated_at " +
+            "FROM project_member pm " +
+            "JOIN project p ON p.id = pm.project_id " +
+            "LEFT JOIN sys_user u ON u.id = p.owner_id " +
+            "WHERE pm.user_id = #{userId} " +
+            "<if test='cursorProjectId != null'>AND pm.project_id &lt; #{cursorProjectId} </if>" +
+            "ORDER BY pm.project_id DESC LIMIT #{limit}" +
+            "</script>")
+    List<ProjectVO> selectPageByMember(@Param("userId") Long userId,
+                                       @Param("cursorProjectId") Long cursorProjectId,
+                                       @Param("limit") int limit);
 }
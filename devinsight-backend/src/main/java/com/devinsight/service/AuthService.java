@@ -1,6 +1,7 @@
 package com.devinsight.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.devinsight.dto.LoginRequest;
 import com.devinsight.dto.RegisterRequest;
 import com.devinsight.entity.User;
@@ -8,13 +9,13 @@ import com.devinsight.exception.BusinessException;
 import com.devinsight.mapper.UserMapper;
 import com.devinsight.util.JwtUtil;
 import com.devinsight.vo.LoginResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 
+@Slf4j
 @Service
 public class AuthService {
     
@@ -24,9 +25,12 @@ public class AuthService {
     @Autowired
     private JwtUtil jwtUtil;
     
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    @Autowired
+    private PasswordHashingService passwordHashingService;
     
-    @Transactional
+    /**
+     * 注册不开启事务：BCrypt 计算期间不占用数据库连接，用户名 / 邮箱的唯一约束兜底并发注册
+     */
     public void register(RegisterRequest request) {
         // 检查用户名是否存在
         LambdaQueryWrapper<User> queryWrapper = new LambdaQueryWrapper<>();
@@ -45,7 +49,7 @@ public class AuthService {
         // 创建用户
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHashingService.hash(request.getPassword()));
         user.setEmail(request.getEmail());
         user.setCreatedAt(LocalDateTime.now());
         user.setUpdatedAt(LocalDateTime.now());
@@ -64,13 +68,37 @@ public class AuthService {
         }
         
         // 验证密码
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (!passwordHashingService.matches(request.getPassword(), user.getPassword())) {
             throw new BusinessException("用户名或密码错误");
         }
         
+        // 工作因子配置变更后，按新配置重新计算哈希（后台执行，不影响本次登录）
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            rehashPassword(user, request.getPassword());
+        }
+        
         // 生成 token
         String token = jwtUtil.generateToken(user.getId(), user.getUsername());
         
         return new LoginResponse(token, user.getId(), user.getUsername());
     }
+    
+    private void rehashPassword(User user, String rawPassword) {
+        String oldPassword = user.getPassword();
+        passwordHashingService.rehashAsync(rawPassword).thenAccept(newPassword -> {
+            if (newPassword == null) {
+                return;
+            }
+            // 只在密码未被并发修改时更新
+            LambdaUpdateWrapper<User> updateWrapper = new LambdaUpdateWrapper<>();
+            updateWrapper.set(User::getPassword, newPassword)
+                    .eq(User::getId, user.getId())
+                    .eq(User::getPassword, oldPassword);
+            userMapper.update(null, updateWrapper);
+            log.info("已按新的工作因子重新计算密码哈希: userId={}", user.getId());
+        }).exceptionally(e -> {
+            log.warn("重新计算密码哈希失败: userId={}, error={}", user.getId(), e.getMessage());
+            return null;
+        });
+    }
 }
@@ -0,0 +1,94 @@
+package com.devinsight.service;
+
+import com.devinsight.analysis.ParsedStackTrace;
+import com.devinsight.entity.AiTask;
+import com.devinsight.entity.ExceptionCluster;
+import com.devinsight.exception.BusinessException;
+import com.devinsight.mapper.ExceptionClusterMapper;
+import com.devinsight.vo.ExceptionClusterVO;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 异常聚类服务
+ */
+@Service
+public class ExceptionClusterService {
+    
+    /**
+     * Top 异常查询的最大返回数量
+     */
+    private static final int MAX_TOP_LIMIT = 100;
+    
+    @Autowired
+    private ExceptionClusterMapper clusterMapper;
+    
+    @Autowired
+    private ProjectMemberCache memberCache;
+    
+    /**
+     * 记录异常出现次数
+     * 同一批任务中指纹相同的异常先在内存中合并，每个聚类只执行一次 upsert；
+     * 按固定顺序 upsert，避免并发批量提交互相等待行锁造成死锁
+     *
+     * @param tasks  已插入的任务（含ID）
+     * @param traces 与 tasks 一一对应的堆栈解析结果（未解析出异常的为 null）
+     */
+    public void recordOccurrences(List<AiTask> tasks, List<ParsedStackTrace> traces) {
+        Map<String, ExceptionCluster> clusters = new TreeMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            ParsedStackTrace trace = traces.get(i);
+            if (trace == null) {
+                continue;
+            }
+            AiTask task = tasks.get(i);
+            String key = task.getProjectId() + ":" + trace.getFingerprint();
+            ExceptionCluster cluster = clusters.get(key);
+            if (cluster == null) {
+                cluster = new ExceptionCluster();
+                cluster.setProjectId(task.getProjectId());
+                cluster.setFingerprint(trace.getFingerprint());
+                cluster.setExceptionType(trace.getExceptionType());
+                cluster.setRootCauseType(trace.getRootCauseType());
+                cluster.setTopFrame(trace.getTopApplicationFrame());
+                cluster.setOccurrenceCount(0L);
+                cluster.setFirstSeenAt(task.getCreatedAt());
+                clusters.put(key, cluster);
+            }
+            cluster.setOccurrenceCount(cluster.getOccurrenceCount() + 1);
+            cluster.setMessageSample(trace.getMessage());
+            cluster.setLastSeenAt(task.getCreatedAt());
+            cluster.setLastTaskId(task.getId());
+        }
+        clusters.values().forEach(clusterMapper::upsertOccurrence);
+    }
+    
+    /**
+     * 查询项目中出现次数最多的异常
+     *
+     * @param projectId 项目ID
+     * @param userId    当前用户ID
+     * @param limit     返回数量
+     * @return 异常聚类列表
+     */
+    public List<ExceptionClusterVO> getTopExceptions(Long projectId, Long userId, int limit) {
+        if (!memberCache.isMember(projectId, userId)) {
+            throw new BusinessException("无权限访问该项目");
+        }
+        return clusterMapper.selectTopByProject(projectId, Math.max(1, Math.min(limit, MAX_TOP_LIMIT))).stream()
+                .map(this::convertToVO)
+                .collect(Collectors.toList());
+    }
+    
+    private ExceptionClusterVO convertToVO(ExceptionCluster cluster) {
+        ExceptionClusterVO vo = new ExceptionClusterVO();
+        BeanUtils.copyProperties(cluster, vo);
+        return vo;
+    }
+}
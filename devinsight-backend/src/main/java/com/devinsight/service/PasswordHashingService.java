@@ -0,0 +1,166 @@
+package com.devinsight.service;
+
+import com.devinsight.exception.BusinessException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 密码哈希服务
+ * BCrypt 计算在独立的有界线程池上执行，登录高峰时最多占用固定数量的 CPU 线程；
+ * 队列满时直接返回 429，等待中的请求线程数也因此有上限，不会拖慢任务接口。
+ */
+@Slf4j
+@Component
+public class PasswordHashingService {
+    
+    /**
+     * BCrypt 哈希格式：$2a$10$...，第二段为工作因子
+     */
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("^\\$2[aby]?\\$(\\d{2})\\$");
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * BCrypt 工作因子（4-31，每加 1 计算量翻倍），修改后旧哈希在用户下次登录时自动重新计算
+     */
+    @Value("${auth.password.bcrypt-strength:10}")
+    private int strength;
+    
+    @Value("${auth.password.threads:2}")
+    private int threads;
+    
+    /**
+     * 等待计算的请求数上限，超过后返回 429
+     */
+    @Value("${auth.password.queue-capacity:32}")
+    private int queueCapacity;
+    
+    /**
+     * 请求线程等待计算结果的最长时间
+     */
+    @Value("${auth.password.timeout:5s}")
+    private Duration timeout;
+    
+    private BCryptPasswordEncoder passwordEncoder;
+    
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    public void init() {
+        passwordEncoder = new BCryptPasswordEncoder(strength);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("auth.password.queue.size", executor, e -> e.getQueue().size())
+                .description("等待计算的密码哈希请求数")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("正在计算的密码哈希请求数")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * 计算密码哈希
+     *
+     * @param rawPassword 明文密码
+     * @return BCrypt 哈希
+     */
+    public String hash(String rawPassword) {
+        return await(() -> passwordEncoder.encode(rawPassword));
+    }
+    
+    /**
+     * 校验密码
+     *
+     * @param rawPassword     明文密码
+     * @param encodedPassword 已存储的哈希
+     * @return 是否匹配
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return await(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+    
+    /**
+     * 已存储的哈希的工作因子是否与当前配置不同（无法识别的格式不处理）
+     */
+    public boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+    
+    /**
+     * 在后台按当前工作因子重新计算哈希
+     * 队列过半时放弃（等下次登录再试），不与正在等待的登录请求争抢容量
+     *
+     * @param rawPassword 明文密码
+     * @return 新哈希；放弃时返回 null
+     */
+    public CompletableFuture<String> rehashAsync(String rawPassword) {
+        if (executor.getQueue().size() * 2 >= queueCapacity) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), executor);
+        } catch (RejectedExecutionException e) {
+            log.debug("密码哈希线程池繁忙，跳过重新计算");
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+    
+    private <T> T await(Callable<T> computation) {
+        Future<T> future;
+        try {
+            future = executor.submit(computation);
+        } catch (RejectedExecutionException e) {
+            throw new BusinessException(429, "认证请求过多，请稍后重试");
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new BusinessException(503, "认证服务繁忙，请稍后重试");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BusinessException(503, "认证服务繁忙，请稍后重试");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("密码哈希计算失败", e.getCause());
+        }
+    }
+}
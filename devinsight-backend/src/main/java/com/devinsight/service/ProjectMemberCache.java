@@ -0,0 +1,161 @@
+package com.devinsight.service;
+
+import com.devinsight.entity.ProjectMember;
+import com.devinsight.mapper.ProjectMemberMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 项目成员关系缓存
+ * 以 (项目ID, 用户ID) 为键缓存成员角色，非成员同样缓存（有效期更短），
+ * 使每个请求的权限检查在命中时只是一次内存查找。
+ * 本节点的成员变更在事务提交后立即失效；其他节点的变更通过 project_member 触发器的
+ * NOTIFY 失效，有效期只作为通知丢失时的兜底。
+ */
+@Slf4j
+@Component
+public class ProjectMemberCache {
+    
+    @Autowired
+    private ProjectMemberMapper projectMemberMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${project.member-cache.max-size:100000}")
+    private long maxSize;
+    
+    /**
+     * 成员记录的有效期
+     */
+    @Value("${project.member-cache.ttl:5m}")
+    private Duration ttl;
+    
+    /**
+     * 非成员记录的有效期，缩短通知丢失时新成员的等待时间
+     */
+    @Value("${project.member-cache.negative-ttl:30s}")
+    private Duration negativeTtl;
+    
+    /**
+     * (项目ID, 用户ID) → 角色，Optional.empty() 表示不是项目成员
+     */
+    private Cache<MemberKey, Optional<String>> roles;
+    
+    @PostConstruct
+    public void init() {
+        roles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<MemberKey, Optional<String>>() {
+                    @Override
+                    public long expireAfterCreate(MemberKey key, Optional<String> role, long currentTime) {
+                        return role.isPresent() ? ttl.toNanos() : negativeTtl.toNanos();
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(MemberKey key, Optional<String> role, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, role, currentTime);
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(MemberKey key, Optional<String> role, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, roles, "project_member");
+    }
+    
+    /**
+     * 查询用户在项目中的角色
+     *
+     * @param projectId 项目ID
+     * @param userId    用户ID
+     * @return 角色，不是项目成员返回null
+     */
+    public String getRole(Long projectId, Long userId) {
+        if (projectId == null || userId == null) {
+            return null;
+        }
+        return roles.get(new MemberKey(projectId, userId), key -> Optional.ofNullable(
+                        projectMemberMapper.selectByProjectAndUser(key.projectId(), key.userId()))
+                .map(ProjectMember::getRole))
+                .orElse(null);
+    }
+    
+    /**
+     * 用户是否是项目成员
+     */
+    public boolean isMember(Long projectId, Long userId) {
+        return getRole(projectId, userId) != null;
+    }
+    
+    /**
+     * 用户是否是项目所有者
+     */
+    public boolean isOwner(Long projectId, Long userId) {
+        return ProjectMember.ROLE_OWNER.equals(getRole(projectId, userId));
+    }
+    
+    /**
+     * 成员关系变更后失效对应记录
+     * 在事务中调用时推迟到提交后执行，避免并发请求在提交前把旧值重新读入缓存
+     */
+    public void invalidate(Long projectId, Long userId) {
+        afterCommit(() -> evict(projectId, userId));
+    }
+    
+    /**
+     * 删除项目后失效该项目的所有记录
+     */
+    public void invalidateProject(Long projectId) {
+        afterCommit(() -> roles.asMap().keySet().removeIf(key -> key.projectId() == projectId));
+    }
+    
+    /**
+     * 立即失效单条记录（处理其他节点的变更通知）
+     */
+    public void evict(Long projectId, Long userId) {
+        roles.invalidate(new MemberKey(projectId, userId));
+    }
+    
+    /**
+     * 清空缓存（通知连接重连后调用，断线期间的变更无法逐条失效）
+     */
+    public void evictAll() {
+        roles.invalidateAll();
+        log.debug("成员关系缓存已清空");
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    private record MemberKey(long projectId, long userId) {
+    }
+}
@@ -1,27 +1,31 @@
 package com.devinsight.service;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.devinsight.dto.ProjectCreateRequest;
 import com.devinsight.entity.Project;
 import com.devinsight.entity.ProjectMember;
 import com.devinsight.entity.User;
 import com.devinsight.exception.BusinessException;
+import com.devinsight.mapper.AiTaskMapper;
 import com.devinsight.mapper.ProjectMapper;
 import com.devinsight.mapper.ProjectMemberMapper;
 import com.devinsight.mapper.UserMapper;
+import com.devinsight.vo.CursorPage;
 import com.devinsight.vo.ProjectVO;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
 @Service
 public class ProjectService {
     
+    private static final int MAX_PAGE_SIZE = 100;
+    
     @Autowired
     private ProjectMapper projectMapper;
     
@@ -31,6 +35,18 @@ public class ProjectService {
     @Autowired
     private UserMapper userMapper;
     
+    @Autowired
+    private AiTaskMapper taskMapper;
+    
+    @Autowired
+    private TaskInputStorage inputStorage;
+    
+    @Autowired
+    private TaskResultCache taskResultCache;
+    
+    @Autowired
+    private ProjectMemberCache memberCache;
+    
     @Transactional
     public ProjectVO createProject(Long userId, ProjectCreateRequest request) {
         // 创建项目
@@ -38,6 +54,7 @@ public class ProjectService {
         project.setName(request.getName());
         project.setDescription(request.getDescription());
         project.setOwnerId(userId);
+        project.setResultCacheEnabled(request.getResultCacheEnabled() == null || request.getResultCacheEnabled());
         project.setCreatedAt(LocalDateTime.now());
         project.setUpdatedAt(LocalDateTime.now());
         
@@ -51,25 +68,35 @@ public class ProjectService {
         member.setJoinedAt(LocalDateTime.now());
         
         projectMemberMapper.insert(member);
+        memberCache.invalidate(project.getId(), userId);
         
         return buildProjectVO(project, userId);
     }
     
-    public List<ProjectVO> getMyProjects(Long userId) {
-        // 查询用户参与的所有项目
-        LambdaQueryWrapper<ProjectMember> memberQuery = new LambdaQueryWrapper<>();
-        memberQuery.eq(ProjectMember::getUserId, userId);
-        List<ProjectMember> members = projectMemberMapper.selectList(memberQuery);
-        
-        List<ProjectVO> result = new ArrayList<>();
-        for (ProjectMember member : members) {
-            Project project = projectMapper.selectById(member.getProjectId());
-            if (project != null) {
-                result.add(buildProjectVO(project, userId));
-            }
+    /**
+     * 分页查询我参与的项目
+     *
+     * @param userId 当前用户ID
+     * @param cursor 分页游标（首页为空）
+     * @param limit  每页数量
+     * @return 项目分页
+     */
+    public CursorPage<ProjectVO> getMyProjects(Long userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        
+        // 一次联表查询，多取一条用于判断是否还有下一页
+        List<ProjectVO> projects = projectMapper.selectPageByMember(userId, decodeCursor(cursor), pageSize + 1);
+        
+        boolean hasMore = projects.size() > pageSize;
+        List<ProjectVO> items = hasMore ? projects.subList(0, pageSize) : projects;
+        
+        CursorPage<ProjectVO> page = new CursorPage<>();
+        page.setItems(items);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            page.setNextCursor(encodeCursor(items.get(items.size() - 1).getId()));
         }
-        
-        return result;
+        return page;
     }
     
     public ProjectVO getProjectDetail(Long userId, Long projectId) {
@@ -96,9 +123,13 @@ public class ProjectService {
         
         project.setName(request.getName());
         project.setDescription(request.getDescription());
+        if (request.getResultCacheEnabled() != null) {
+            project.setResultCacheEnabled(request.getResultCacheEnabled());
+        }
         project.setUpdatedAt(LocalDateTime.now());
         
         projectMapper.updateById(project);
+        taskResultCache.evictProjectSetting(projectId);
     }
     
     @Transactional
@@ -106,8 +137,11 @@ public class ProjectService {
         // 检查是否为 OWNER
         checkProjectOwner(userId, projectId);
         
-        // 删除项目（级联删除成员记录）
+        // 删除项目（级联删除成员记录和任务），任务的上传输入文件在事务提交后删除
+        List<String> inputRefs = taskMapper.selectInputRefsByProjectId(projectId);
         projectMapper.deleteById(projectId);
+        memberCache.invalidateProject(projectId);
+        inputStorage.deleteAfterCommit(inputRefs);
     }
     
     private ProjectVO buildProjectVO(Project project, Long currentUserId) {
@@ -121,34 +155,38 @@ public class ProjectService {
         }
         
         // 获取当前用户的角色
-        LambdaQueryWrapper<ProjectMember> query = new LambdaQueryWrapper<>();
-        query.eq(ProjectMember::getProjectId, project.getId())
-                .eq(ProjectMember::getUserId, currentUserId);
-        ProjectMember member = projectMemberMapper.selectOne(query);
-        if (member != null) {
-            vo.setMyRole(member.getRole());
-        }
+        vo.setMyRole(memberCache.getRole(project.getId(), currentUserId));
         
         return vo;
     }
     
+    /**
+     * 分页游标：上一页最后一个项目ID，以 Base64URL 编码后交给客户端
+     */
+    private String encodeCursor(Long projectId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(projectId).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new BusinessException("无效的分页游标");
+        }
+    }
+    
     private void checkProjectAccess(Long userId, Long projectId) {
-        LambdaQueryWrapper<ProjectMember> query = new LambdaQueryWrapper<>();
-        query.eq(ProjectMember::getProjectId, projectId)
-                .eq(ProjectMember::getUserId, userId);
-        
-        if (projectMemberMapper.selectOne(query) == null) {
+        if (!memberCache.isMember(projectId, userId)) {
             throw new BusinessException(403, "无权访问该项目");
         }
     }
     
     private void checkProjectOwner(Long userId, Long projectId) {
-        LambdaQueryWrapper<ProjectMember> query = new LambdaQueryWrapper<>();
-        query.eq(ProjectMember::getProjectId, projectId)
-                .eq(ProjectMember::getUserId, userId)
-                .eq(ProjectMember::getRole, ProjectMember.ROLE_OWNER);
-        
-        if (projectMemberMapper.selectOne(query) == null) {
+        if (!memberCache.isOwner(projectId, userId)) {
             throw new BusinessException(403, "无权操作该项目，仅限项目所有者");
         }
     }
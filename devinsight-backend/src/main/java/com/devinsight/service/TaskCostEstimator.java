@@ -0,0 +1,43 @@
+package com.devinsight.service;
+
+import com.devinsight.enums.TaskLane;
+import com.devinsight.enums.TaskType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 任务成本预估
+ * 成本 = 任务类型成本系数 × 输入大小（KB，向上取整，至少为 1）
+ * 成本不超过阈值的任务走交互通道，其余走批量通道
+ */
+@Component
+public class TaskCostEstimator {
+    
+    /**
+     * 交互通道允许的最大预估成本
+     */
+    @Value("${task.lane.interactive-max-cost:64}")
+    private long interactiveMaxCost;
+    
+    /**
+     * 预估任务成本
+     *
+     * @param taskType    任务类型
+     * @param inputLength 输入长度
+     * @return 预估成本
+     */
+    public long estimate(TaskType taskType, long inputLength) {
+        long kilobytes = Math.max(1, (inputLength + 1023) / 1024);
+        return kilobytes * taskType.getCostWeight();
+    }
+    
+    /**
+     * 按预估成本选择执行通道
+     *
+     * @param estimatedCost 预估成本
+     * @return 执行通道
+     */
+    public TaskLane route(long estimatedCost) {
+        return estimatedCost <= interactiveMaxCost ? TaskLane.INTERACTIVE : TaskLane.BATCH;
+    }
+}
@@ -0,0 +1,142 @@
+package com.devinsight.service;
+
+import com.devinsight.enums.TaskStatus;
+import com.devinsight.vo.TaskEventVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 任务状态事件分发（进程内订阅表）
+ * 状态变化来自数据库触发器的 NOTIFY（由 TaskNotificationListener 转发），因此其他节点上发生的变化同样会推送。
+ * 订阅表按任务ID索引，空闲的订阅只占一个 Map 条目，不占线程；
+ * 推送在独立的分发线程上执行，慢客户端不会阻塞通知监听线程。
+ * 分发队列已满时不能静默丢弃事件（订阅者会一直停在旧状态），改为在当前线程结束该任务的订阅，
+ * 由客户端重新订阅或重新轮询获取最新状态。
+ */
+@Slf4j
+@Component
+public class TaskEventBroker {
+    
+    @Value("${task.events.dispatch-threads:2}")
+    private int dispatchThreads;
+    
+    @Value("${task.events.dispatch-queue-capacity:10000}")
+    private int dispatchQueueCapacity;
+    
+    /**
+     * 任务ID → 订阅者
+     */
+    private final Map<Long, Set<Subscription>> subscribers = new ConcurrentHashMap<>();
+    
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+    
+    private ThreadPoolExecutor dispatcher;
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(dispatchQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "task-event-dispatch-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+    
+    /**
+     * 订阅任务状态变化
+     *
+     * @param taskId    任务ID
+     * @param listener  事件回调（在分发线程上执行）
+     * @param onDropped 事件因分发队列已满未能送达时的回调（在发布线程上执行，只能做不阻塞的操作，
+     *                  例如结束连接让客户端重新获取状态）
+     * @return 取消订阅的操作（可重复调用）
+     */
+    public Runnable subscribe(Long taskId, Consumer<TaskEventVO> listener, Runnable onDropped) {
+        Subscription subscription = new Subscription(listener, onDropped);
+        subscribers.compute(taskId, (id, listeners) -> {
+            Set<Subscription> result = listeners != null ? listeners : ConcurrentHashMap.newKeySet();
+            if (result.add(subscription)) {
+                subscriptionCount.incrementAndGet();
+            }
+            return result;
+        });
+        return () -> unsubscribe(taskId, subscription);
+    }
+    
+    private void unsubscribe(Long taskId, Subscription subscription) {
+        subscribers.computeIfPresent(taskId, (id, listeners) -> {
+            if (listeners.remove(subscription)) {
+                subscriptionCount.decrementAndGet();
+            }
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+    
+    /**
+     * 发布任务状态变化（没有订阅者时直接返回）
+     *
+     * @param taskId 任务ID
+     * @param status 新状态
+     */
+    public void publish(Long taskId, TaskStatus status) {
+        Set<Subscription> listeners = subscribers.get(taskId);
+        if (listeners == null) {
+            return;
+        }
+        TaskEventVO event = TaskEventVO.of(taskId, status);
+        try {
+            dispatcher.execute(() -> {
+                for (Subscription subscription : listeners) {
+                    try {
+                        subscription.listener().accept(event);
+                    } catch (Exception e) {
+                        log.debug("推送任务事件失败: taskId={}, error={}", taskId, e.getMessage());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("任务事件分发队列已满，结束该任务的订阅由客户端重新获取状态: taskId={}, subscribers={}",
+                    taskId, listeners.size());
+            for (Subscription subscription : listeners) {
+                try {
+                    subscription.onDropped().run();
+                } catch (Exception ex) {
+                    log.debug("结束任务订阅失败: taskId={}, error={}", taskId, ex.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * 当前订阅数
+     */
+    public int getSubscriptionCount() {
+        return subscriptionCount.get();
+    }
+    
+    /**
+     * 订阅：事件回调 + 事件未送达时的回调
+     */
+    private record Subscription(Consumer<TaskEventVO> listener, Runnable onDropped) {
+    }
+}
@@ -0,0 +1,200 @@
+package com.devinsight.service;
+
+import com.devinsight.entity.AiTask;
+import com.devinsight.enums.TaskStatus;
+import com.devinsight.exception.BusinessException;
+import com.devinsight.mapper.AiTaskMapper;
+import com.devinsight.vo.TaskEventVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 任务状态推送服务（SSE / 长轮询）
+ * 两种方式都基于 Servlet 异步请求，等待期间不占用请求线程。
+ * 先订阅再读取当前状态，保证读取与订阅之间发生的状态变化不会丢失。
+ */
+@Slf4j
+@Service
+public class TaskEventService {
+    
+    private static final String EVENT_NAME = "status";
+    
+    @Autowired
+    private AiTaskMapper taskMapper;
+    
+    @Autowired
+    private ProjectMemberCache memberCache;
+    
+    @Autowired
+    private TaskEventBroker eventBroker;
+    
+    /**
+     * SSE 连接最长保持时间（毫秒），超时后客户端应重新订阅
+     */
+    @Value("${task.events.sse-timeout:1800000}")
+    private long sseTimeout;
+    
+    /**
+     * 长轮询最长等待时间（毫秒）
+     */
+    @Value("${task.events.long-poll-max-timeout:60000}")
+    private long longPollMaxTimeout;
+    
+    /**
+     * 当前打开的 SSE 连接（用于发送心跳）
+     */
+    private final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * 订阅任务状态（SSE）
+     * 连接建立后立即推送当前状态，之后每次状态变化推送一次，进入终态后关闭连接
+     *
+     * @param taskId 任务ID
+     * @param userId 当前用户ID
+     * @return SSE 连接
+     */
+    public SseEmitter subscribe(Long taskId, Long userId) {
+        TaskStatus status = loadStatus(taskId, userId);
+        SseEmitter emitter = new SseEmitter(sseTimeout);
+        if (status.isTerminal()) {
+            send(emitter, TaskEventVO.of(taskId, status));
+            emitter.complete();
+            return emitter;
+        }
+        
+        // 只推送与上一次不同的状态
+        AtomicReference<TaskStatus> lastSent = new AtomicReference<>();
+        // 事件未送达时结束连接，客户端重连后先收到最新状态
+        Runnable unsubscribe = eventBroker.subscribe(taskId, event -> sendIfChanged(emitter, lastSent, event),
+                emitter::complete);
+        emitters.add(emitter);
+        Runnable cleanup = () -> {
+            unsubscribe.run();
+            emitters.remove(emitter);
+        };
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> cleanup.run());
+        
+        AiTask current = taskMapper.selectStatus(taskId);
+        if (current != null) {
+            sendIfChanged(emitter, lastSent, TaskEventVO.of(taskId, current.getStatus()));
+        }
+        return emitter;
+    }
+    
+    /**
+     * 等待任务状态变化（长轮询）
+     * 当前状态与 knownStatus 不同时立即返回；否则等到状态变化或超时（changed = false）。
+     * 不传 knownStatus 时以当前状态为准，任务已是终态则立即返回。
+     *
+     * @param taskId      任务ID
+     * @param userId      当前用户ID
+     * @param knownStatus 客户端已知的状态（可选）
+     * @param timeout     最长等待时间（毫秒）
+     * @return 异步结果
+     */
+    public DeferredResult<Map<String, Object>> waitForChange(Long taskId, Long userId,
+                                                             TaskStatus knownStatus, long timeout) {
+        TaskStatus status = loadStatus(taskId, userId);
+        TaskStatus baseline = knownStatus != null ? knownStatus : status;
+        long waitMillis = Math.max(1, Math.min(timeout, longPollMaxTimeout));
+        
+        DeferredResult<Map<String, Object>> result = new DeferredResult<>(waitMillis);
+        if (status != baseline || status.isTerminal()) {
+            result.setResult(wrap(taskId, status, status != baseline));
+            return result;
+        }
+        
+        // 事件未送达时按超时返回，客户端带着已知状态重新轮询会立即拿到最新状态
+        Runnable unsubscribe = eventBroker.subscribe(taskId, event -> {
+            if (event.getStatus() != baseline) {
+                result.setResult(wrap(taskId, event.getStatus(), true));
+            }
+        }, () -> result.setResult(wrap(taskId, baseline, false)));
+        result.onCompletion(unsubscribe);
+        result.onTimeout(() -> result.setResult(wrap(taskId, baseline, false)));
+        
+        AiTask current = taskMapper.selectStatus(taskId);
+        if (current != null && current.getStatus() != baseline) {
+            result.setResult(wrap(taskId, current.getStatus(), true));
+        }
+        return result;
+    }
+    
+    /**
+     * 定时向所有 SSE 连接发送心跳注释，避免空闲连接被代理或负载均衡断开
+     */
+    @Scheduled(fixedDelayString = "${task.events.heartbeat-interval:25000}")
+    public void sendHeartbeats() {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+    
+    /**
+     * 当前打开的 SSE 连接数
+     */
+    public int getOpenStreamCount() {
+        return emitters.size();
+    }
+    
+    private TaskStatus loadStatus(Long taskId, Long userId) {
+        AiTask task = taskMapper.selectStatus(taskId);
+        if (task == null) {
+            throw new BusinessException("任务不存在");
+        }
+        
+        // 检查权限：必须是项目成员
+        if (!memberCache.isMember(task.getProjectId(), userId)) {
+            throw new BusinessException("无权限访问该任务");
+        }
+        return task.getStatus();
+    }
+    
+    private void sendIfChanged(SseEmitter emitter, AtomicReference<TaskStatus> lastSent, TaskEventVO event) {
+        TaskStatus previous = lastSent.getAndSet(event.getStatus());
+        if (previous == event.getStatus()) {
+            return;
+        }
+        if (send(emitter, event) && event.getStatus().isTerminal()) {
+            emitter.complete();
+        }
+    }
+    
+    private boolean send(SseEmitter emitter, TaskEventVO event) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(event));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+    
+    private Map<String, Object> wrap(Long taskId, TaskStatus status, boolean changed) {
+        TaskEventVO event = TaskEventVO.of(taskId, status);
+        event.setChanged(changed);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 200);
+        result.put("data", event);
+        return result;
+    }
+}
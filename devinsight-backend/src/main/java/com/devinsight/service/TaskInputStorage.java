@@ -0,0 +1,209 @@
+package com.devinsight.service;
+
+import com.devinsight.exception.BusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * 大输入存储
+ * 上传的日志 / 堆栈以流的方式边读边写入磁盘（gzip 请求体边读边解压），同时计算 SHA-256，
+ * 每次上传只占用固定大小的缓冲区。任务通过 input_ref（相对存储目录的路径）引用输入。
+ * 存储目录需为持久化目录，多节点部署时需要挂载为共享存储。
+ * 输入文件随任务删除（项目删除级联删除任务时），已结束任务的输入超过保留期后由 TaskInputRetentionSweeper 清理。
+ */
+@Slf4j
+@Component
+public class TaskInputStorage {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final DateTimeFormatter DIRECTORY_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    
+    @Value("${task.input-storage.dir:./data/task-inputs}")
+    private String directory;
+    
+    /**
+     * 单次上传（解压后）的最大大小
+     */
+    @Value("${task.input-storage.max-size:1GB}")
+    private DataSize maxSize;
+    
+    /**
+     * 存储上传内容
+     *
+     * @param body 请求体
+     * @param gzip 请求体是否为 gzip 压缩
+     * @return 存储结果
+     */
+    public StoredInput store(InputStream body, boolean gzip) throws IOException {
+        Path baseDir = baseDir();
+        Files.createDirectories(baseDir);
+        Path temp = Files.createTempFile(baseDir, "upload-", ".tmp");
+        
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (InputStream in = new DigestInputStream(gzip ? new GZIPInputStream(body, BUFFER_SIZE) : body, digest);
+             OutputStream out = Files.newOutputStream(temp)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                size += n;
+                if (size > maxSize.toBytes()) {
+                    throw new BusinessException(413, "上传内容超过大小限制: " + maxSize.toMegabytes() + "MB");
+                }
+                out.write(buffer, 0, n);
+            }
+        } catch (ZipException e) {
+            Files.deleteIfExists(temp);
+            throw new BusinessException("请求体不是有效的 gzip 数据");
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (size == 0) {
+            Files.deleteIfExists(temp);
+            throw new BusinessException("上传内容不能为空");
+        }
+        
+        String ref = LocalDate.now().format(DIRECTORY_FORMAT) + "/" + UUID.randomUUID() + ".log";
+        Path target = resolve(ref);
+        Files.createDirectories(target.getParent());
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        
+        log.debug("上传内容已存储: ref={}, size={}", ref, size);
+        return new StoredInput(ref, size, HexFormat.of().formatHex(digest.digest()));
+    }
+    
+    /**
+     * 以 UTF-8 打开存储的内容（由调用方负责关闭）
+     */
+    public Reader openReader(String ref) throws IOException {
+        return new InputStreamReader(Files.newInputStream(resolve(ref)), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 以资源形式访问存储的内容（用于按 Range 分段下载）
+     */
+    public Resource asResource(String ref) {
+        return new FileSystemResource(resolve(ref));
+    }
+    
+    /**
+     * 读取存储内容的前 maxChars 个字符
+     */
+    public String readPrefix(String ref, int maxChars) throws IOException {
+        try (Reader reader = openReader(ref)) {
+            char[] buffer = new char[maxChars];
+            int total = 0;
+            int n;
+            while (total < maxChars && (n = reader.read(buffer, total, maxChars - total)) != -1) {
+                total += n;
+            }
+            return new String(buffer, 0, total);
+        }
+    }
+    
+    /**
+     * 删除存储的内容
+     */
+    public void delete(String ref) {
+        try {
+            Files.deleteIfExists(resolve(ref));
+        } catch (IOException e) {
+            log.warn("删除上传内容失败: ref={}, error={}", ref, e.getMessage());
+        }
+    }
+    
+    /**
+     * 在当前事务提交后删除存储的内容（事务回滚时保留；不在事务中时立即删除）
+     */
+    public void deleteAfterCommit(Collection<String> refs) {
+        if (refs.isEmpty()) {
+            return;
+        }
+        Runnable action = () -> refs.forEach(this::delete);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    private Path baseDir() {
+        return Paths.get(directory).toAbsolutePath().normalize();
+    }
+    
+    private Path resolve(String ref) {
+        Path baseDir = baseDir();
+        Path path = baseDir.resolve(ref).normalize();
+        if (!path.startsWith(baseDir)) {
+            throw new IllegalArgumentException("非法的输入引用: " + ref);
+        }
+        return path;
+    }
+    
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+    
+    /**
+     * 存储结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class StoredInput {
+        
+        /**
+         * 输入引用（相对存储目录的路径）
+         */
+        private String ref;
+        
+        /**
+         * 大小（字节，解压后）
+         */
+        private long size;
+        
+        /**
+         * SHA-256（解压后的内容）
+         */
+        private String sha256;
+    }
+}
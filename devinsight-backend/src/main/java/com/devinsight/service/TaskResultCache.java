@@ -0,0 +1,294 @@
+package com.devinsight.service;
+
+import com.devinsight.entity.AiTask;
+import com.devinsight.entity.Project;
+import com.devinsight.enums.TaskType;
+import com.devinsight.mapper.AiTaskMapper;
+import com.devinsight.mapper.ProjectMapper;
+import com.devinsight.typehandler.CompressedText;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * 任务结果缓存（按内容寻址）
+ * 以 SHA-256(项目ID + 任务类型 + 归一化输入) 为键：先查本地有界缓存，未命中再查 ai_task 中
+ * 同一项目 TTL 内最近一次成功的结果。命中时新提交的任务直接完成，不再调用 AI。
+ * 一批任务的本地未命中合并为一次数据库查询；数据库中也没有的键短时间记为未命中，避免重复查询。
+ * 本地缓存的条目从结果的完成时间起算 TTL 过期，从数据库加载的旧结果不会因放入本地缓存而延长有效期。
+ * 结果中包含输入里的异常消息、日志片段，因此只在项目内复用，不跨项目共享。
+ * 关闭了结果缓存的项目不计算内容哈希，既不读取也不贡献缓存。
+ */
+@Slf4j
+@Component
+public class TaskResultCache {
+    
+    /**
+     * 归一化后分块写入摘要的块大小
+     */
+    private static final int DIGEST_CHUNK_SIZE = 8192;
+    
+    @Autowired
+    private AiTaskMapper taskMapper;
+    
+    @Autowired
+    private ProjectMapper projectMapper;
+    
+    @Value("${task.result-cache.enabled:true}")
+    private boolean enabled;
+    
+    /**
+     * 结果有效期，超过该时间的历史结果不再复用
+     */
+    @Value("${task.result-cache.ttl:24h}")
+    private Duration ttl;
+    
+    /**
+     * 本地缓存容量上限（按压缩后的结果字节数计）
+     */
+    @Value("${task.result-cache.max-weight:67108864}")
+    private long maxWeight;
+    
+    /**
+     * 数据库未命中的记录时长（期间同一内容的任务不再查询数据库）
+     */
+    @Value("${task.result-cache.miss-ttl:5s}")
+    private Duration missTtl;
+    
+    /**
+     * 本地缓存的时钟（测试时替换）
+     */
+    private Ticker ticker = Ticker.systemTicker();
+    
+    /**
+     * 项目ID:任务类型:内容哈希 → 结果数据（保持压缩形式，命中时不解压）
+     */
+    private Cache<String, CachedResult> results;
+    
+    /**
+     * 最近在数据库中未命中的键
+     */
+    private Cache<String, Boolean> misses;
+    
+    /**
+     * 项目ID → 是否启用结果缓存（项目设置变更频率低，短时间缓存）
+     */
+    private Cache<Long, Boolean> projectSettings;
+    
+    @PostConstruct
+    public void init() {
+        results = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String key, CachedResult value) -> value.resultData().getEncodedSize())
+                .expireAfter(new Expiry<String, CachedResult>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResult value, long currentTime) {
+                        return remainingNanos(value);
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResult value, long currentTime,
+                                                  long currentDuration) {
+                        return remainingNanos(value);
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String key, CachedResult value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(ticker)
+                .build();
+        misses = Caffeine.newBuilder()
+                .maximumSize(100000)
+                .expireAfterWrite(missTtl)
+                .ticker(ticker)
+                .build();
+        projectSettings = Caffeine.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .build();
+    }
+    
+    /**
+     * 计算任务内容哈希
+     *
+     * @param projectId 项目ID
+     * @param taskType  任务类型
+     * @param inputData 参与哈希的内容（原始输入；异常分析任务为异常指纹）
+     * @return 内容哈希；结果缓存关闭（全局或项目级）时返回 null
+     */
+    public String computeHash(Long projectId, TaskType taskType, String inputData) {
+        if (!enabled || !isEnabledForProject(projectId)) {
+            return null;
+        }
+        return hash(projectId, taskType, inputData);
+    }
+    
+    /**
+     * 批量查找项目内可复用的结果
+     * 先查本地缓存，其余的键合并为一次数据库查询（其他节点产生的结果），按结果的完成时间计算剩余有效期
+     *
+     * @param keys 结果键（内容哈希为 null 的键直接跳过）
+     * @return 命中的结果，未命中的键不在返回值中
+     */
+    public Map<ResultKey, CompressedText> lookupAll(Collection<ResultKey> keys) {
+        Map<ResultKey, CompressedText> found = new HashMap<>();
+        Map<String, ResultKey> remaining = new HashMap<>();
+        for (ResultKey key : keys) {
+            if (key.contentHash() == null) {
+                continue;
+            }
+            String cacheKey = key.cacheKey();
+            CachedResult cached = results.getIfPresent(cacheKey);
+            if (cached != null) {
+                found.put(key, cached.resultData());
+            } else if (misses.getIfPresent(cacheKey) == null) {
+                remaining.put(cacheKey, key);
+            }
+        }
+        if (remaining.isEmpty()) {
+            return found;
+        }
+        
+        Long[] projectIds = remaining.values().stream().map(ResultKey::projectId).distinct().toArray(Long[]::new);
+        String[] contentHashes = remaining.values().stream().map(ResultKey::contentHash).distinct()
+                .toArray(String[]::new);
+        for (AiTask row : taskMapper.selectLatestSuccessResults(projectIds, contentHashes,
+                LocalDateTime.now().minus(ttl))) {
+            // 查询按项目和哈希分别取 ANY，组合可能多于请求的键，按完整的键匹配
+            ResultKey key = remaining.remove(
+                    new ResultKey(row.getProjectId(), row.getTaskType(), row.getContentHash()).cacheKey());
+            if (key == null || row.getResultData() == null) {
+                continue;
+            }
+            results.put(key.cacheKey(), new CachedResult(row.getResultData(), row.getCompletedAt()));
+            found.put(key, row.getResultData());
+        }
+        remaining.keySet().forEach(cacheKey -> misses.put(cacheKey, Boolean.TRUE));
+        return found;
+    }
+    
+    /**
+     * 记录成功的结果
+     */
+    public void put(Long projectId, TaskType taskType, String contentHash, CompressedText resultData) {
+        if (contentHash == null || resultData == null) {
+            return;
+        }
+        String cacheKey = new ResultKey(projectId, taskType, contentHash).cacheKey();
+        results.put(cacheKey, new CachedResult(resultData, LocalDateTime.now()));
+        misses.invalidate(cacheKey);
+    }
+    
+    /**
+     * 项目设置变更后清除本地的项目设置缓存
+     */
+    public void evictProjectSetting(Long projectId) {
+        projectSettings.invalidate(projectId);
+    }
+    
+    private boolean isEnabledForProject(Long projectId) {
+        return projectSettings.get(projectId, id -> {
+            Project project = projectMapper.selectById(id);
+            return project == null || !Boolean.FALSE.equals(project.getResultCacheEnabled());
+        });
+    }
+    
+    /**
+     * 距结果过期（完成时间 + TTL）的剩余纳秒数
+     */
+    private long remainingNanos(CachedResult value) {
+        LocalDateTime completedAt = value.completedAt() != null ? value.completedAt() : LocalDateTime.now();
+        return Math.max(0, Duration.between(LocalDateTime.now(), completedAt.plus(ttl)).toNanos());
+    }
+    
+    /**
+     * 计算 SHA-256(项目ID + '\0' + 任务类型 + '\0' + 归一化输入)
+     * 归一化：去掉 \r、行尾空白以及首尾空白行，避免换行风格和多余空白导致缓存失效；
+     * 逐字符处理并分块写入摘要，不复制整份输入
+     */
+    static String hash(Long projectId, TaskType taskType, String inputData) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+        digest.update(String.valueOf(projectId).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(taskType.getValue().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        
+        StringBuilder chunk = new StringBuilder(DIGEST_CHUNK_SIZE);
+        StringBuilder pendingSpaces = new StringBuilder();
+        int pendingNewlines = 0;
+        boolean started = false;
+        String input = inputData != null ? inputData : "";
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '\r') {
+                continue;
+            }
+            if (c == '\n') {
+                // 行尾空白丢弃
+                pendingSpaces.setLength(0);
+                pendingNewlines++;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpaces.append(c);
+                continue;
+            }
+            if (started) {
+                for (int n = 0; n < pendingNewlines; n++) {
+                    chunk.append('\n');
+                }
+                chunk.append(pendingSpaces);
+            }
+            started = true;
+            pendingNewlines = 0;
+            pendingSpaces.setLength(0);
+            chunk.append(c);
+            if (chunk.length() >= DIGEST_CHUNK_SIZE && !Character.isHighSurrogate(c)) {
+                digest.update(chunk.toString().getBytes(StandardCharsets.UTF_8));
+                chunk.setLength(0);
+            }
+        }
+        digest.update(chunk.toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    /**
+     * 结果键：项目ID + 任务类型 + 内容哈希
+     */
+    public record ResultKey(Long projectId, TaskType taskType, String contentHash) {
+        
+        String cacheKey() {
+            return projectId + ":" + taskType.getValue() + ":" + contentHash;
+        }
+    }
+    
+    /**
+     * 本地缓存的结果及其完成时间
+     */
+    private record CachedResult(CompressedText resultData, LocalDateTime completedAt) {
+    }
+}
@@ -1,20 +1,42 @@
 package com.devinsight.service;
 
+import com.devinsight.analysis.ExceptionAnalyzer;
+import com.devinsight.analysis.ParsedStackTrace;
+import com.devinsight.analysis.StackTraceFingerprinter;
+import com.devinsight.dto.TaskBatchSubmitRequest;
 import com.devinsight.dto.TaskSubmitRequest;
 import com.devinsight.entity.AiTask;
-import com.devinsight.entity.ProjectMember;
 import com.devinsight.enums.TaskStatus;
+import com.devinsight.enums.TaskType;
 import com.devinsight.exception.BusinessException;
 import com.devinsight.mapper.AiTaskMapper;
-import com.devinsight.mapper.ProjectMemberMapper;
+import com.devinsight.tracing.InMemorySpanCollector;
+import com.devinsight.tracing.TaskTracer;
+import com.devinsight.tracing.TraceSpan;
+import com.devinsight.typehandler.CompressedText;
+import com.devinsight.vo.CursorPage;
+import com.devinsight.vo.TaskSummaryVO;
+import com.devinsight.vo.TaskTraceVO;
 import com.devinsight.vo.TaskVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -24,11 +46,51 @@ import java.util.stream.Collectors;
 @Service
 public class TaskService {
     
+    /**
+     * 多行插入每条语句的最大行数（控制单条 SQL 的参数个数）
+     */
+    private static final int BATCH_INSERT_SIZE = 500;
+    
+    /**
+     * 列表查询每页最大数量
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    /**
+     * 原文接口支持的内容
+     */
+    public static final String PAYLOAD_INPUT = "input";
+    public static final String PAYLOAD_RESULT = "result";
+    
     @Autowired
     private AiTaskMapper taskMapper;
     
     @Autowired
-    private ProjectMemberMapper projectMemberMapper;
+    private ProjectMemberCache memberCache;
+    
+    @Autowired
+    private TaskCostEstimator costEstimator;
+    
+    @Autowired
+    private TaskResultCache resultCache;
+    
+    @Autowired
+    private StackTraceFingerprinter fingerprinter;
+    
+    @Autowired
+    private ExceptionAnalyzer exceptionAnalyzer;
+    
+    @Autowired
+    private ExceptionClusterService clusterService;
+    
+    @Autowired
+    private TaskInputStorage inputStorage;
+    
+    @Autowired
+    private TaskTracer tracer;
+    
+    @Autowired
+    private InMemorySpanCollector spanCollector;
     
     /**
      * 提交任务
@@ -37,30 +99,207 @@ public class TaskService {
      * @param userId  当前用户ID
      * @return 任务ID
      */
+    @Transactional
     public Long submitTask(TaskSubmitRequest request, Long userId) {
         // 1. 检查用户是否是项目成员
-        ProjectMember member = projectMemberMapper.selectByProjectAndUser(request.getProjectId(), userId);
-        if (member == null) {
+        if (!memberCache.isMember(request.getProjectId(), userId)) {
             throw new BusinessException("无权限访问该项目");
         }
         
         // 2. 创建任务
-        AiTask task = new AiTask();
-        task.setProjectId(request.getProjectId());
-        task.setUserId(userId);
-        task.setTaskType(request.getTaskType());
-        task.setStatus(TaskStatus.PENDING);
-        task.setInputData(request.getInputData());
-        task.setCreatedAt(LocalDateTime.now());
+        ParsedStackTrace trace = parseStackTrace(request);
+        AiTask task = buildTask(request, userId, trace);
+        applyCachedResults(List.of(task), Collections.singletonList(trace));
         
         taskMapper.insert(task);
+        clusterService.recordOccurrences(List.of(task), Collections.singletonList(trace));
         
-        log.info("用户 {} 提交任务: taskId={}, type={}, projectId={}", 
-                userId, task.getId(), task.getTaskType(), task.getProjectId());
+        log.info("用户 {} 提交任务: taskId={}, type={}, projectId={}, status={}, lane={}, cost={}", 
+                userId, task.getId(), task.getTaskType(), task.getProjectId(), task.getStatus(),
+                task.getLane(), task.getEstimatedCost());
         
         return task.getId();
     }
     
+    /**
+     * 批量提交任务
+     * 每个项目只校验一次成员身份，任务按批次多行插入，整体在一个事务内完成
+     *
+     * @param request 批量提交请求
+     * @param userId  当前用户ID
+     * @return 任务ID列表（与请求中的任务顺序一致）
+     */
+    @Transactional
+    public List<Long> submitTasks(TaskBatchSubmitRequest request, Long userId) {
+        List<TaskSubmitRequest> requests = request.getTasks();
+        
+        // 1. 校验所有涉及项目的成员身份（每个项目只查一次）
+        Set<Long> projectIds = requests.stream()
+                .map(TaskSubmitRequest::getProjectId)
+                .collect(Collectors.toSet());
+        if (!projectIds.stream().allMatch(projectId -> memberCache.isMember(projectId, userId))) {
+            throw new BusinessException("无权限访问该项目");
+        }
+        
+        // 2. 创建任务
+        List<ParsedStackTrace> traces = new ArrayList<>(requests.size());
+        List<AiTask> tasks = new ArrayList<>(requests.size());
+        for (TaskSubmitRequest taskRequest : requests) {
+            ParsedStackTrace trace = parseStackTrace(taskRequest);
+            traces.add(trace);
+            tasks.add(buildTask(taskRequest, userId, trace));
+        }
+        applyCachedResults(tasks, traces);
+        
+        // 3. 一次分配全部主键，再分批多行插入
+        List<Long> taskIds = taskMapper.allocateIds(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).setId(taskIds.get(i));
+        }
+        for (int from = 0; from < tasks.size(); from += BATCH_INSERT_SIZE) {
+            taskMapper.insertBatch(tasks.subList(from, Math.min(from + BATCH_INSERT_SIZE, tasks.size())));
+        }
+        
+        // 4. 更新异常聚类
+        clusterService.recordOccurrences(tasks, traces);
+        
+        log.info("用户 {} 批量提交任务: count={}, projects={}", userId, tasks.size(), projectIds);
+        
+        return taskIds;
+    }
+    
+    /**
+     * 以上传方式提交任务
+     * 请求体流式写入输入存储，不在内存中保留完整输入；存储期间不占用数据库连接
+     *
+     * @param projectId 项目ID
+     * @param taskType  任务类型
+     * @param priority  优先级（可选）
+     * @param body      请求体
+     * @param gzip      请求体是否为 gzip 压缩
+     * @param userId    当前用户ID
+     * @return 任务ID
+     */
+    public Long submitUpload(Long projectId, TaskType taskType, Integer priority,
+                             InputStream body, boolean gzip, Long userId) throws IOException {
+        // 1. 检查用户是否是项目成员（先于读取请求体）
+        if (!memberCache.isMember(projectId, userId)) {
+            throw new BusinessException("无权限访问该项目");
+        }
+        if (priority != null && (priority < 0 || priority > 9)) {
+            throw new BusinessException("优先级范围为 0-9");
+        }
+        
+        // 2. 存储输入
+        TaskInputStorage.StoredInput stored = inputStorage.store(body, gzip);
+        
+        // 3. 创建任务；上传内容以 SHA-256 参与内容哈希，异常堆栈以指纹参与哈希并按指纹聚类
+        try {
+            ParsedStackTrace trace = taskType == TaskType.EXCEPTION_ANALYSIS
+                    ? fingerprinter.parse(inputStorage.readPrefix(stored.getRef(),
+                            StackTraceFingerprinter.MAX_UPLOAD_PARSE_CHARS))
+                    : null;
+            AiTask task = newTask(projectId, userId, taskType, priority, stored.getSize(),
+                    trace != null ? trace.getFingerprint() : "sha256:" + stored.getSha256());
+            task.setInputRef(stored.getRef());
+            applyCachedResults(List.of(task), Collections.singletonList(trace));
+            
+            taskMapper.insert(task);
+            clusterService.recordOccurrences(List.of(task), Collections.singletonList(trace));
+            
+            log.info("用户 {} 上传提交任务: taskId={}, type={}, projectId={}, status={}, size={}, lane={}",
+                    userId, task.getId(), taskType, projectId, task.getStatus(), stored.getSize(), task.getLane());
+            return task.getId();
+        } catch (IOException | RuntimeException e) {
+            inputStorage.delete(stored.getRef());
+            throw e;
+        }
+    }
+    
+    /**
+     * 异常分析任务在提交时解析堆栈，其他类型返回 null
+     */
+    private ParsedStackTrace parseStackTrace(TaskSubmitRequest request) {
+        if (request.getTaskType() != TaskType.EXCEPTION_ANALYSIS) {
+            return null;
+        }
+        return fingerprinter.parse(request.getInputData());
+    }
+    
+    /**
+     * 根据提交请求构建任务
+     * 解析出异常堆栈时以异常指纹代替原始输入计算内容哈希，同一指纹的异常共享一次分析；
+     * 本次的消息和出错位置在命中时写回结果（见 {@link #applyCachedResults}）
+     */
+    private AiTask buildTask(TaskSubmitRequest request, Long userId, ParsedStackTrace trace) {
+        AiTask task = newTask(request.getProjectId(), userId, request.getTaskType(), request.getPriority(),
+                request.getInputData().length(), trace != null ? trace.getFingerprint() : request.getInputData());
+        task.setInputData(CompressedText.of(request.getInputData()));
+        return task;
+    }
+    
+    /**
+     * 构建任务
+     * 预估成本、选择执行通道后进入 pending；结果缓存由 {@link #applyCachedResults} 统一查找
+     *
+     * @param inputSize  输入大小（用于预估成本）
+     * @param hashSource 参与内容哈希计算的内容
+     */
+    private AiTask newTask(Long projectId, Long userId, TaskType taskType, Integer priority,
+                           long inputSize, String hashSource) {
+        LocalDateTime now = LocalDateTime.now();
+        AiTask task = new AiTask();
+        task.setProjectId(projectId);
+        task.setUserId(userId);
+        task.setTaskType(taskType);
+        task.setStatus(TaskStatus.PENDING);
+        task.setInputSize(inputSize);
+        task.setCreatedAt(now);
+        task.setPriority(priority != null ? priority : AiTask.DEFAULT_PRIORITY);
+        task.setEstimatedCost(costEstimator.estimate(taskType, inputSize));
+        task.setLane(costEstimator.route(task.getEstimatedCost()));
+        task.setContentHash(resultCache.computeHash(projectId, taskType, hashSource));
+        // 执行阶段的 span 挂在提交请求之下
+        task.setTraceParent(tracer.currentTraceParent());
+        return task;
+    }
+    
+    /**
+     * 命中结果缓存的任务直接构建为成功状态
+     * 整批任务一起查找，本地未命中的部分只查询一次数据库；异常分析结果按指纹共享，
+     * 命中后写入本次异常的消息和出错位置
+     *
+     * @param tasks  任务列表
+     * @param traces 与任务一一对应的异常堆栈解析结果（非异常分析任务为 null）
+     */
+    private void applyCachedResults(List<AiTask> tasks, List<ParsedStackTrace> traces) {
+        List<TaskResultCache.ResultKey> keys = tasks.stream()
+                .filter(task -> task.getContentHash() != null)
+                .map(TaskService::resultKey)
+                .collect(Collectors.toList());
+        if (keys.isEmpty()) {
+            return;
+        }
+        Map<TaskResultCache.ResultKey, CompressedText> cachedResults = resultCache.lookupAll(keys);
+        for (int i = 0; i < tasks.size(); i++) {
+            AiTask task = tasks.get(i);
+            CompressedText cachedResult = task.getContentHash() != null ? cachedResults.get(resultKey(task)) : null;
+            if (cachedResult != null) {
+                ParsedStackTrace trace = traces.get(i);
+                task.setStatus(TaskStatus.SUCCESS);
+                task.setResultData(trace != null
+                        ? CompressedText.of(exceptionAnalyzer.withOccurrence(cachedResult.getText(), trace))
+                        : cachedResult);
+                task.setStartedAt(task.getCreatedAt());
+                task.setCompletedAt(task.getCreatedAt());
+            }
+        }
+    }
+    
+    private static TaskResultCache.ResultKey resultKey(AiTask task) {
+        return new TaskResultCache.ResultKey(task.getProjectId(), task.getTaskType(), task.getContentHash());
+    }
+    
     /**
      * 查询任务详情
      *
@@ -69,14 +308,13 @@ public class TaskService {
      * @return 任务详情
      */
     public TaskVO getTask(Long taskId, Long userId) {
-        AiTask task = taskMapper.selectById(taskId);
+        AiTask task = taskMapper.selectDetail(taskId);
         if (task == null) {
             throw new BusinessException("任务不存在");
         }
         
         // 检查权限：必须是项目成员
-        ProjectMember member = projectMemberMapper.selectByProjectAndUser(task.getProjectId(), userId);
-        if (member == null) {
+        if (!memberCache.isMember(task.getProjectId(), userId)) {
             throw new BusinessException("无权限访问该任务");
         }
         
@@ -84,36 +322,224 @@ public class TaskService {
     }
     
     /**
-     * 查询项目下的任务列表
+     * 查询任务执行时间线
+     * 排队、完成时间来自数据库（任意节点都可查询）；各阶段 span 来自执行节点的内存收集器
+     *
+     * @param taskId 任务ID
+     * @param userId 当前用户ID
+     * @return 时间线
+     */
+    public TaskTraceVO getTaskTrace(Long taskId, Long userId) {
+        AiTask task = taskMapper.selectTraceInfo(taskId);
+        if (task == null) {
+            throw new BusinessException("任务不存在");
+        }
+        
+        // 检查权限：必须是项目成员
+        if (!memberCache.isMember(task.getProjectId(), userId)) {
+            throw new BusinessException("无权限访问该任务");
+        }
+        
+        TaskTraceVO trace = new TaskTraceVO();
+        trace.setTaskId(task.getId());
+        trace.setStatus(task.getStatus());
+        trace.setAttemptCount(task.getAttemptCount());
+        trace.setCreatedAt(task.getCreatedAt());
+        trace.setStartedAt(task.getStartedAt());
+        trace.setCompletedAt(task.getCompletedAt());
+        if (task.getCreatedAt() != null && task.getStartedAt() != null) {
+            trace.setQueueMillis(Duration.between(task.getCreatedAt(), task.getStartedAt()).toMillis());
+        }
+        if (task.getCreatedAt() != null && task.getCompletedAt() != null) {
+            trace.setTotalMillis(Duration.between(task.getCreatedAt(), task.getCompletedAt()).toMillis());
+        }
+        
+        List<TraceSpan> spans = spanCollector.getTaskSpans(taskId);
+        if (task.getTraceParent() != null) {
+            trace.setTraceId(task.getTraceParent().split("-")[1]);
+        } else if (!spans.isEmpty()) {
+            trace.setTraceId(spans.get(0).getTraceId());
+        }
+        long origin = task.getCreatedAt() != null
+                ? tracer.toEpochNanos(task.getCreatedAt())
+                : spans.isEmpty() ? 0 : spans.get(0).getStartEpochNanos();
+        trace.setSpans(spans.stream()
+                .map(span -> convertToSpanVO(span, origin))
+                .collect(Collectors.toList()));
+        return trace;
+    }
+    
+    private TaskTraceVO.Span convertToSpanVO(TraceSpan span, long originEpochNanos) {
+        TaskTraceVO.Span vo = new TaskTraceVO.Span();
+        vo.setSpanId(span.getSpanId());
+        vo.setParentSpanId(span.getParentSpanId());
+        vo.setName(span.getName());
+        vo.setOffsetMillis((span.getStartEpochNanos() - originEpochNanos) / 1_000_000.0);
+        vo.setDurationMillis((span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000_000.0);
+        vo.setError(span.isError());
+        vo.setErrorMessage(span.getErrorMessage());
+        vo.setAttributes(span.getAttributes());
+        return vo;
+    }
+    
+    /**
+     * 获取任务的输入或结果原文
+     * 上传的输入直接返回存储文件，其余解压后返回；配合控制器支持 HTTP Range 分段读取
+     *
+     * @param taskId 任务ID
+     * @param part   input 或 result
+     * @param userId 当前用户ID
+     * @return 内容资源
+     */
+    public Resource getTaskPayload(Long taskId, String part, Long userId) {
+        AiTask task;
+        if (PAYLOAD_INPUT.equals(part)) {
+            task = taskMapper.selectInputPayload(taskId);
+        } else if (PAYLOAD_RESULT.equals(part)) {
+            task = taskMapper.selectResultPayload(taskId);
+        } else {
+            throw new BusinessException("只支持 input 或 result");
+        }
+        if (task == null) {
+            throw new BusinessException("任务不存在");
+        }
+        
+        // 检查权限：必须是项目成员
+        if (!memberCache.isMember(task.getProjectId(), userId)) {
+            throw new BusinessException("无权限访问该任务");
+        }
+        
+        if (task.getInputRef() != null) {
+            return inputStorage.asResource(task.getInputRef());
+        }
+        CompressedText payload = PAYLOAD_INPUT.equals(part) ? task.getInputData() : task.getResultData();
+        if (payload == null) {
+            throw new BusinessException(404, "内容不存在");
+        }
+        return new ByteArrayResource(payload.getText().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 分页查询项目下的任务列表
      *
      * @param projectId 项目ID
      * @param userId    当前用户ID
-     * @return 任务列表
+     * @param status    状态过滤（可选）
+     * @param taskType  类型过滤（可选）
+     * @param cursor    分页游标（首页为空）
+     * @param limit     每页数量
+     * @return 任务分页（摘要，不含输入和结果）
      */
-    public List<TaskVO> getProjectTasks(Long projectId, Long userId) {
+    public CursorPage<TaskSummaryVO> getProjectTasks(Long projectId, Long userId, TaskStatus status, TaskType taskType,
+                                              String cursor, int limit) {
         // 检查权限
-        ProjectMember member = projectMemberMapper.selectByProjectAndUser(projectId, userId);
-        if (member == null) {
+        if (!memberCache.isMember(projectId, userId)) {
             throw new BusinessException("无权限访问该项目");
         }
         
-        List<AiTask> tasks = taskMapper.selectByProjectId(projectId);
-        return tasks.stream()
-                .map(this::convertToVO)
-                .collect(Collectors.toList());
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        int pageSize = normalizePageSize(limit);
+        // 多取一条判断是否还有下一页
+        List<AiTask> tasks = taskMapper.selectPageByProjectId(projectId, valueOf(status), valueOf(taskType),
+                pageCursor.createdAt, pageCursor.id, pageSize + 1);
+        return toPage(tasks, pageSize);
     }
     
     /**
-     * 查询用户的任务列表
+     * 分页查询用户的任务列表
      *
-     * @param userId 用户ID
-     * @return 任务列表
+     * @param userId   用户ID
+     * @param status   状态过滤（可选）
+     * @param taskType 类型过滤（可选）
+     * @param cursor   分页游标（首页为空）
+     * @param limit    每页数量
+     * @return 任务分页（摘要，不含输入和结果）
      */
-    public List<TaskVO> getUserTasks(Long userId) {
-        List<AiTask> tasks = taskMapper.selectByUserId(userId);
-        return tasks.stream()
-                .map(this::convertToVO)
-                .collect(Collectors.toList());
+    public CursorPage<TaskSummaryVO> getUserTasks(Long userId, TaskStatus status, TaskType taskType,
+                                           String cursor, int limit) {
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        int pageSize = normalizePageSize(limit);
+        List<AiTask> tasks = taskMapper.selectPageByUserId(userId, valueOf(status), valueOf(taskType),
+                pageCursor.createdAt, pageCursor.id, pageSize + 1);
+        return toPage(tasks, pageSize);
+    }
+    
+    private int normalizePageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+    
+    private String valueOf(TaskStatus status) {
+        return status != null ? status.getValue() : null;
+    }
+    
+    private String valueOf(TaskType taskType) {
+        return taskType != null ? taskType.getValue() : null;
+    }
+    
+    /**
+     * 组装分页结果：查询结果比页大小多一条时说明还有下一页，游标取本页最后一条
+     */
+    private CursorPage<TaskSummaryVO> toPage(List<AiTask> tasks, int pageSize) {
+        boolean hasMore = tasks.size() > pageSize;
+        List<AiTask> pageTasks = hasMore ? tasks.subList(0, pageSize) : tasks;
+        
+        CursorPage<TaskSummaryVO> page = new CursorPage<>();
+        page.setItems(pageTasks.stream()
+                .map(this::convertToSummaryVO)
+                .collect(Collectors.toList()));
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            AiTask last = pageTasks.get(pageTasks.size() - 1);
+            page.setNextCursor(PageCursor.encode(last.getCreatedAt(), last.getId()));
+        }
+        return page;
+    }
+    
+    /**
+     * 分页游标：上一页最后一条的 (created_at, id)，以 Base64URL 编码后交给客户端
+     */
+    private static class PageCursor {
+        
+        private static final PageCursor FIRST_PAGE = new PageCursor(null, null);
+        
+        private final LocalDateTime createdAt;
+        
+        private final Long id;
+        
+        private PageCursor(LocalDateTime createdAt, Long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+        
+        static String encode(LocalDateTime createdAt, Long id) {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static PageCursor decode(String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                return FIRST_PAGE;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new BusinessException("无效的分页游标");
+            }
+        }
+    }
+    
+    /**
+     * 转换为摘要VO对象
+     */
+    private TaskSummaryVO convertToSummaryVO(AiTask task) {
+        TaskSummaryVO vo = new TaskSummaryVO();
+        BeanUtils.copyProperties(task, vo);
+        vo.setTaskTypeDesc(task.getTaskType().getDescription());
+        vo.setStatusDesc(task.getStatus().getDescription());
+        return vo;
     }
     
     /**
@@ -122,6 +548,9 @@ public class TaskService {
     private TaskVO convertToVO(AiTask task) {
         TaskVO vo = new TaskVO();
         BeanUtils.copyProperties(task, vo);
+        // 压缩存储的字段在这里才解压
+        vo.setInputData(task.getInputData() != null ? task.getInputData().getText() : null);
+        vo.setResultData(task.getResultData() != null ? task.getResultData().getText() : null);
         vo.setTaskTypeDesc(task.getTaskType().getDescription());
         vo.setStatusDesc(task.getStatus().getDescription());
         return vo;
@@ -0,0 +1,65 @@
+package com.devinsight.tracing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 内存 span 收集器：按任务保留最近的 span，供任务时间线接口查询
+ * 只包含本节点执行产生的 span；容量和保留时间见 tracing.memory
+ */
+@Component
+public class InMemorySpanCollector implements SpanExporter {
+    
+    @Autowired
+    private TracingProperties properties;
+    
+    /**
+     * 任务ID → span（按结束顺序追加）
+     */
+    private Cache<Long, List<TraceSpan>> spansByTask;
+    
+    @PostConstruct
+    public void init() {
+        spansByTask = Caffeine.newBuilder()
+                .maximumSize(properties.getMemory().getMaxTasks())
+                .expireAfterAccess(properties.getMemory().getTtl())
+                .build();
+    }
+    
+    @Override
+    public void export(TraceSpan span) {
+        if (span.getTaskId() == null) {
+            return;
+        }
+        List<TraceSpan> spans = spansByTask.asMap().computeIfAbsent(span.getTaskId(), id -> new ArrayList<>());
+        synchronized (spans) {
+            spans.add(span);
+        }
+    }
+    
+    /**
+     * 查询任务的 span（按开始时间排序）
+     *
+     * @param taskId 任务ID
+     * @return span 列表，没有记录时为空
+     */
+    public List<TraceSpan> getTaskSpans(Long taskId) {
+        List<TraceSpan> spans = spansByTask.getIfPresent(taskId);
+        if (spans == null) {
+            return List.of();
+        }
+        List<TraceSpan> copy;
+        synchronized (spans) {
+            copy = new ArrayList<>(spans);
+        }
+        copy.sort(Comparator.comparingLong(TraceSpan::getStartEpochNanos));
+        return copy;
+    }
+}
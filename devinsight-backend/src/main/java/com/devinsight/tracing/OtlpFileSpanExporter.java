@@ -0,0 +1,190 @@
+package com.devinsight.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTLP JSON 文件导出器
+ * 每行写入一个 OTLP/JSON 格式的 ExportTraceServiceRequest（与 OpenTelemetry Collector 的 file exporter 输出一致），
+ * 可以用 Collector 的 otlpjsonfile receiver 转发到 Jaeger / Tempo 等后端。
+ * span 先进入有界队列，由单独的线程批量写入；队列满时丢弃，不影响任务执行。
+ */
+@Slf4j
+@Component
+public class OtlpFileSpanExporter implements SpanExporter {
+    
+    /**
+     * OTLP SpanKind / StatusCode 取值
+     */
+    private static final int SPAN_KIND_INTERNAL = 1;
+    private static final int SPAN_KIND_SERVER = 2;
+    private static final int STATUS_CODE_OK = 1;
+    private static final int STATUS_CODE_ERROR = 2;
+    
+    @Autowired
+    private TracingProperties properties;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${spring.application.name:devinsight-backend}")
+    private String serviceName;
+    
+    private volatile BlockingQueue<TraceSpan> queue;
+    
+    private Thread writerThread;
+    
+    private Counter droppedCounter;
+    
+    private volatile boolean running;
+    
+    @PostConstruct
+    public void init() throws IOException {
+        String file = properties.getExport().getFile();
+        if (file == null || file.isBlank()) {
+            return;
+        }
+        Path path = Path.of(file);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        queue = new LinkedBlockingQueue<>(properties.getExport().getQueueCapacity());
+        droppedCounter = Counter.builder("tracing.spans.dropped")
+                .description("导出队列已满而丢弃的 span 数")
+                .register(meterRegistry);
+        running = true;
+        writerThread = new Thread(() -> writeLoop(path), "trace-export");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("span 导出到文件: {}", path.toAbsolutePath());
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    
+    @Override
+    public void export(TraceSpan span) {
+        if (queue != null && !queue.offer(span)) {
+            droppedCounter.increment();
+        }
+    }
+    
+    private void writeLoop(Path path) {
+        int batchSize = properties.getExport().getBatchSize();
+        List<TraceSpan> batch = new ArrayList<>(batchSize);
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            while (running || !queue.isEmpty()) {
+                TraceSpan first;
+                try {
+                    first = queue.poll(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // 停机：写完队列中剩余的 span
+                    first = queue.poll();
+                }
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writer.write(objectMapper.writeValueAsString(toRequest(batch)));
+                writer.newLine();
+                writer.flush();
+                batch.clear();
+            }
+        } catch (IOException e) {
+            log.error("写入 span 导出文件失败，停止导出: {}", path, e);
+            queue = null;
+        }
+    }
+    
+    private Map<String, Object> toRequest(List<TraceSpan> spans) {
+        List<Map<String, Object>> otlpSpans = new ArrayList<>(spans.size());
+        for (TraceSpan span : spans) {
+            otlpSpans.add(toOtlpSpan(span));
+        }
+        Map<String, Object> resource = Map.of("attributes", List.of(attribute("service.name", serviceName)));
+        Map<String, Object> scopeSpans = Map.of(
+                "scope", Map.of("name", "com.devinsight.tracing"),
+                "spans", otlpSpans);
+        return Map.of("resourceSpans", List.of(Map.of(
+                "resource", resource,
+                "scopeSpans", List.of(scopeSpans))));
+    }
+    
+    private Map<String, Object> toOtlpSpan(TraceSpan span) {
+        Map<String, Object> otlpSpan = new LinkedHashMap<>();
+        otlpSpan.put("traceId", span.getTraceId());
+        otlpSpan.put("spanId", span.getSpanId());
+        if (span.getParentSpanId() != null) {
+            otlpSpan.put("parentSpanId", span.getParentSpanId());
+        }
+        otlpSpan.put("name", span.getName());
+        otlpSpan.put("kind", TraceSpan.KIND_SERVER.equals(span.getKind()) ? SPAN_KIND_SERVER : SPAN_KIND_INTERNAL);
+        otlpSpan.put("startTimeUnixNano", String.valueOf(span.getStartEpochNanos()));
+        otlpSpan.put("endTimeUnixNano", String.valueOf(span.getEndEpochNanos()));
+        
+        List<Map<String, Object>> attributes = new ArrayList<>();
+        if (span.getTaskId() != null) {
+            attributes.add(attribute("task.id", span.getTaskId()));
+        }
+        span.getAttributes().forEach((key, value) -> attributes.add(attribute(key, value)));
+        otlpSpan.put("attributes", attributes);
+        
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("code", span.isError() ? STATUS_CODE_ERROR : STATUS_CODE_OK);
+        if (span.getErrorMessage() != null) {
+            status.put("message", span.getErrorMessage());
+        }
+        otlpSpan.put("status", status);
+        return otlpSpan;
+    }
+    
+    /**
+     * OTLP/JSON 的 KeyValue：整数以字符串表示
+     */
+    private Map<String, Object> attribute(String key, Object value) {
+        Map<String, Object> anyValue;
+        if (value instanceof Boolean) {
+            anyValue = Map.of("boolValue", value);
+        } else if (value instanceof Integer || value instanceof Long) {
+            anyValue = Map.of("intValue", String.valueOf(value));
+        } else if (value instanceof Number) {
+            anyValue = Map.of("doubleValue", ((Number) value).doubleValue());
+        } else {
+            anyValue = Map.of("stringValue", String.valueOf(value));
+        }
+        return Map.of("key", key, "value", anyValue);
+    }
+}
@@ -0,0 +1,9 @@
+package com.devinsight.tracing;
+
+/**
+ * span 导出器，span 结束时由 TaskTracer 依次调用（调用方线程上执行，不能阻塞）
+ */
+public interface SpanExporter {
+    
+    void export(TraceSpan span);
+}
@@ -0,0 +1,172 @@
+package com.devinsight.tracing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 链路追踪
+ * 兼容 W3C Trace Context：HTTP 请求继承调用方的 traceparent（没有时新建 trace），
+ * 提交任务时把请求的 traceparent 写入 ai_task.trace_parent，执行阶段的 span 都挂在提交请求之下，
+ * 因此一次提交从 HTTP 请求到排队、抢占、AI 服务调用、结果写回可以在同一条 trace 中查看。
+ * span 结束时交给所有 SpanExporter（内存收集器、OTLP 文件导出器）。
+ */
+@Slf4j
+@Component
+public class TaskTracer {
+    
+    private static final Pattern TRACE_PARENT_PATTERN =
+            Pattern.compile("^[0-9a-f]{2}-([0-9a-f]{32})-([0-9a-f]{16})-[0-9a-f]{2}$");
+    
+    private static final String INVALID_TRACE_ID = "0".repeat(32);
+    
+    private static final String INVALID_SPAN_ID = "0".repeat(16);
+    
+    @Autowired
+    private List<SpanExporter> exporters;
+    
+    /**
+     * 当前线程正在处理的 HTTP 请求的 span
+     */
+    private final ThreadLocal<TraceSpan> requestSpan = new ThreadLocal<>();
+    
+    /**
+     * 开始 HTTP 请求的 span，并绑定到当前线程
+     *
+     * @param incomingTraceParent 请求头中的 traceparent（可为空或无效，此时新建 trace）
+     * @param name                span 名称
+     * @return 请求 span
+     */
+    public TraceSpan beginRequest(String incomingTraceParent, String name) {
+        TraceSpan span = startSpan(incomingTraceParent, name, null, now());
+        span.setKind(TraceSpan.KIND_SERVER);
+        requestSpan.set(span);
+        return span;
+    }
+    
+    /**
+     * 结束当前线程的 HTTP 请求 span
+     */
+    public void endRequest(int statusCode, Throwable error) {
+        TraceSpan span = requestSpan.get();
+        if (span == null) {
+            return;
+        }
+        requestSpan.remove();
+        span.setAttribute("http.status_code", statusCode);
+        end(span, error != null ? error : statusCode >= 500 ? new IllegalStateException("HTTP " + statusCode) : null);
+    }
+    
+    /**
+     * 当前 HTTP 请求的 traceparent（不在请求线程上时为空）
+     */
+    public String currentTraceParent() {
+        TraceSpan span = requestSpan.get();
+        return span != null ? span.toTraceParent() : null;
+    }
+    
+    /**
+     * 开始一个 span
+     *
+     * @param traceParent     父 span 的 traceparent（为空或无效时作为新 trace 的根 span）
+     * @param name            span 名称
+     * @param taskId          所属任务
+     * @param startEpochNanos 开始时间
+     * @return span
+     */
+    public TraceSpan startSpan(String traceParent, String name, Long taskId, long startEpochNanos) {
+        TraceSpan span = new TraceSpan();
+        Matcher matcher = traceParent != null ? TRACE_PARENT_PATTERN.matcher(traceParent) : null;
+        if (matcher != null && matcher.matches()
+                && !INVALID_TRACE_ID.equals(matcher.group(1)) && !INVALID_SPAN_ID.equals(matcher.group(2))) {
+            span.setTraceId(matcher.group(1));
+            span.setParentSpanId(matcher.group(2));
+        } else {
+            span.setTraceId(randomId(16));
+        }
+        span.setSpanId(randomId(8));
+        span.setName(name);
+        span.setTaskId(taskId);
+        span.setStartEpochNanos(startEpochNanos);
+        return span;
+    }
+    
+    /**
+     * 开始子 span（开始时间为当前时间）
+     */
+    public TraceSpan startChild(TraceSpan parent, String name) {
+        return startChild(parent, name, now());
+    }
+    
+    public TraceSpan startChild(TraceSpan parent, String name, long startEpochNanos) {
+        TraceSpan span = new TraceSpan();
+        span.setTraceId(parent.getTraceId());
+        span.setParentSpanId(parent.getSpanId());
+        span.setSpanId(randomId(8));
+        span.setName(name);
+        span.setTaskId(parent.getTaskId());
+        span.setStartEpochNanos(startEpochNanos);
+        return span;
+    }
+    
+    public void end(TraceSpan span) {
+        end(span, null, now());
+    }
+    
+    public void end(TraceSpan span, Throwable error) {
+        end(span, error, now());
+    }
+    
+    /**
+     * 结束 span 并导出
+     *
+     * @param span          span
+     * @param error         失败原因（成功时为空）
+     * @param endEpochNanos 结束时间
+     */
+    public void end(TraceSpan span, Throwable error, long endEpochNanos) {
+        span.setEndEpochNanos(Math.max(endEpochNanos, span.getStartEpochNanos()));
+        if (error != null) {
+            span.setError(true);
+            span.setErrorMessage(error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
+        }
+        for (SpanExporter exporter : exporters) {
+            try {
+                exporter.export(span);
+            } catch (RuntimeException e) {
+                log.warn("span 导出失败: exporter={}, error={}", exporter.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 当前时间（Unix 纳秒时间戳，精度取决于系统时钟）
+     */
+    public long now() {
+        Instant instant = Instant.now();
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+    
+    /**
+     * 数据库中的本地时间转换为 Unix 纳秒时间戳
+     */
+    public long toEpochNanos(LocalDateTime time) {
+        Instant instant = time.atZone(ZoneId.systemDefault()).toInstant();
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+    
+    private String randomId(int bytes) {
+        byte[] id = new byte[bytes];
+        ThreadLocalRandom.current().nextBytes(id);
+        return HexFormat.of().formatHex(id);
+    }
+}
@@ -0,0 +1,65 @@
+package com.devinsight.tracing;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一个已结束或进行中的 span
+ * 时间为 Unix 纳秒时间戳，ID 为 W3C Trace Context 的十六进制格式（traceId 32 位、spanId 16 位）
+ */
+@Data
+public class TraceSpan {
+    
+    public static final String KIND_SERVER = "SERVER";
+    public static final String KIND_INTERNAL = "INTERNAL";
+    
+    private String traceId;
+    
+    private String spanId;
+    
+    /**
+     * 父 span（根 span 为空）
+     */
+    private String parentSpanId;
+    
+    private String name;
+    
+    /**
+     * SERVER（HTTP 请求）或 INTERNAL（任务执行阶段）
+     */
+    private String kind = KIND_INTERNAL;
+    
+    /**
+     * 所属任务（HTTP 请求的 span 为空）
+     */
+    private Long taskId;
+    
+    private long startEpochNanos;
+    
+    private long endEpochNanos;
+    
+    /**
+     * 是否以错误结束
+     */
+    private boolean error;
+    
+    private String errorMessage;
+    
+    private Map<String, Object> attributes = new LinkedHashMap<>();
+    
+    public TraceSpan setAttribute(String key, Object value) {
+        if (value != null) {
+            attributes.put(key, value);
+        }
+        return this;
+    }
+    
+    /**
+     * W3C traceparent 头（以当前 span 为父 span）
+     */
+    public String toTraceParent() {
+        return "00-" + traceId + "-" + spanId + "-01";
+    }
+}
@@ -0,0 +1,59 @@
+package com.devinsight.tracing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 链路追踪配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "tracing")
+public class TracingProperties {
+    
+    /**
+     * 内存收集器（供 GET /api/tasks/{id}/trace 查询）
+     */
+    private Memory memory = new Memory();
+    
+    /**
+     * 文件导出
+     */
+    private Export export = new Export();
+    
+    @Data
+    public static class Memory {
+        
+        /**
+         * 最多保留多少个任务的 span
+         */
+        private long maxTasks = 10000;
+        
+        /**
+         * 任务最后一个 span 结束后保留的时间
+         */
+        private Duration ttl = Duration.ofHours(1);
+    }
+    
+    @Data
+    public static class Export {
+        
+        /**
+         * OTLP JSON 导出文件（每行一个 ExportTraceServiceRequest），为空不导出
+         */
+        private String file;
+        
+        /**
+         * 等待写入的 span 数上限，超过后丢弃
+         */
+        private int queueCapacity = 10000;
+        
+        /**
+         * 每行最多包含的 span 数
+         */
+        private int batchSize = 512;
+    }
+}
@@ -0,0 +1,131 @@
+package com.devinsight.typehandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 压缩文本（对应 BYTEA 列）
+ * <p>
+ * 存储格式为 1 字节编码标记 + 内容：0x00 表示原始 UTF-8，0x01 表示 gzip 压缩的 UTF-8。
+ * 写入时只有超过阈值且压缩后更小才压缩；从数据库读出时只持有编码后的字节，
+ * 调用 {@link #getText()} 时才解压，且不缓存解压结果。
+ */
+public final class CompressedText {
+    
+    public static final byte CODEC_RAW = 0x00;
+    
+    public static final byte CODEC_GZIP = 0x01;
+    
+    /**
+     * 小于该字节数的文本不压缩
+     */
+    public static final int COMPRESSION_THRESHOLD = 512;
+    
+    private final byte[] encoded;
+    
+    private CompressedText(byte[] encoded) {
+        this.encoded = encoded;
+    }
+    
+    /**
+     * 编码文本
+     *
+     * @param text 文本
+     * @return 编码结果；text 为 null 时返回 null
+     */
+    public static CompressedText of(String text) {
+        if (text == null) {
+            return null;
+        }
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        if (raw.length >= COMPRESSION_THRESHOLD) {
+            byte[] compressed = gzip(raw);
+            if (compressed.length < raw.length + 1) {
+                return new CompressedText(compressed);
+            }
+        }
+        byte[] bytes = new byte[raw.length + 1];
+        bytes[0] = CODEC_RAW;
+        System.arraycopy(raw, 0, bytes, 1, raw.length);
+        return new CompressedText(bytes);
+    }
+    
+    /**
+     * 包装数据库中读出的编码字节（不解压）
+     */
+    public static CompressedText fromEncoded(byte[] encoded) {
+        return new CompressedText(encoded);
+    }
+    
+    /**
+     * 解码文本（每次调用都会重新解压）
+     * 不带编码标记的字节（未知标记）按原始 UTF-8 处理
+     */
+    public String getText() {
+        if (encoded.length == 0) {
+            return "";
+        }
+        switch (encoded[0]) {
+            case CODEC_RAW:
+                return new String(encoded, 1, encoded.length - 1, StandardCharsets.UTF_8);
+            case CODEC_GZIP:
+                try (InputStream in = new GZIPInputStream(
+                        new ByteArrayInputStream(encoded, 1, encoded.length - 1))) {
+                    return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("解压文本失败", e);
+                }
+            default:
+                return new String(encoded, StandardCharsets.UTF_8);
+        }
+    }
+    
+    /**
+     * 编码后的字节（直接返回内部数组，调用方不得修改）
+     */
+    public byte[] getEncoded() {
+        return encoded;
+    }
+    
+    public int getEncodedSize() {
+        return encoded.length;
+    }
+    
+    public boolean isCompressed() {
+        return encoded.length > 0 && encoded[0] == CODEC_GZIP;
+    }
+    
+    /**
+     * 对未压缩且超过阈值的内容重新编码，已压缩、无需压缩或压缩后不会更小时返回自身
+     */
+    public CompressedText recompress() {
+        if (isCompressed() || encoded.length <= COMPRESSION_THRESHOLD) {
+            return this;
+        }
+        CompressedText recompressed = of(getText());
+        return recompressed.isCompressed() ? recompressed : this;
+    }
+    
+    @Override
+    public String toString() {
+        return getText();
+    }
+    
+    private static byte[] gzip(byte[] raw) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(raw.length / 4 + 16);
+        buffer.write(CODEC_GZIP);
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException("压缩文本失败", e);
+        }
+        return buffer.toByteArray();
+    }
+}
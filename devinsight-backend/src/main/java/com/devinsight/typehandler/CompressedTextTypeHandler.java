@@ -0,0 +1,45 @@
+package com.devinsight.typehandler;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedJdbcTypes;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link CompressedText} 与 BYTEA 列的映射
+ * 读取时只取出编码后的字节，解压推迟到真正访问文本时
+ */
+@MappedTypes(CompressedText.class)
+@MappedJdbcTypes(value = JdbcType.BINARY, includeNullJdbcType = true)
+public class CompressedTextTypeHandler extends BaseTypeHandler<CompressedText> {
+    
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, CompressedText parameter, JdbcType jdbcType)
+            throws SQLException {
+        ps.setBytes(i, parameter.getEncoded());
+    }
+    
+    @Override
+    public CompressedText getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return wrap(rs.getBytes(columnName));
+    }
+    
+    @Override
+    public CompressedText getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return wrap(rs.getBytes(columnIndex));
+    }
+    
+    @Override
+    public CompressedText getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return wrap(cs.getBytes(columnIndex));
+    }
+    
+    private CompressedText wrap(byte[] bytes) {
+        return bytes != null ? CompressedText.fromEncoded(bytes) : null;
+    }
+}
@@ -1,13 +1,29 @@
 package com.devinsight.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
@@ -18,8 +34,75 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    /**
+     * 已验证令牌缓存容量
+     */
+    @Value("${jwt.verified-cache.max-size:50000}")
+    private long verifiedCacheMaxSize;
+    
+    /**
+     * 已验证令牌在缓存中的最长保留时间（同时不超过令牌本身的过期时间）
+     */
+    @Value("${jwt.verified-cache.ttl:10m}")
+    private Duration verifiedCacheTtl;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 签名密钥和解析器只构建一次，JwtParser 不可变且线程安全
+     */
+    private SecretKey signingKey;
+    
+    private JwtParser parser;
+    
+    /**
+     * 令牌 SHA-256 摘要 → 已验证结果，命中时跳过签名校验（不在内存中保留令牌原文）
+     */
+    private Cache<String, VerifiedToken> verifiedTokens;
+    
+    private Timer cacheHitTimer;
+    
+    private Timer cacheMissTimer;
+    
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                        long untilExpiry = TimeUnit.MILLISECONDS.toNanos(token.expiresAt - System.currentTimeMillis());
+                        return Math.max(0, Math.min(untilExpiry, verifiedCacheTtl.toNanos()));
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken token, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, token, currentTime);
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken token, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt_token");
+        cacheHitTimer = Timer.builder("auth.token.verify")
+                .description("令牌验证耗时")
+                .tag("cache", "hit")
+                .register(meterRegistry);
+        cacheMissTimer = Timer.builder("auth.token.verify")
+                .description("令牌验证耗时")
+                .tag("cache", "miss")
+                .register(meterRegistry);
     }
     
     public String generateToken(Long userId, String username) {
@@ -31,28 +114,75 @@ public class JwtUtil {
                 .claim("username", username)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
     
-    public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return Long.valueOf(claims.getSubject());
+    /**
+     * 校验签名和有效期并返回声明（每次调用都做完整校验）
+     *
+     * @param token 令牌
+     * @return 声明
+     * @throws JwtException 令牌无效或已过期
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+    
+    /**
+     * 验证令牌并返回用户ID
+     * 近期验证过的令牌直接从缓存返回；未命中时完整校验一次并缓存到令牌过期为止
+     *
+     * @param token 令牌
+     * @return 用户ID，令牌无效或已过期返回null
+     */
+    public Long verifyToken(String token) {
+        long start = System.nanoTime();
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            cacheHitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached.userId;
+        }
+        
+        Long userId = null;
+        try {
+            Claims claims = parseClaims(token);
+            userId = Long.valueOf(claims.getSubject());
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(digest, new VerifiedToken(userId, claims.getExpiration().getTime()));
+            }
+        } catch (JwtException | IllegalArgumentException e) {
+            // 无效令牌不缓存，避免被随机令牌挤占容量
+        }
+        cacheMissTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return userId;
     }
     
-    public boolean validateToken(String token) {
+    private String digest(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+    
+    /**
+     * 已验证的令牌
+     */
+    private static class VerifiedToken {
+        
+        private final Long userId;
+        
+        /**
+         * 令牌过期时间（毫秒时间戳）
+         */
+        private final long expiresAt;
+        
+        private VerifiedToken(Long userId, long expiresAt) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
         }
     }
 }
@@ -0,0 +1,27 @@
+package com.devinsight.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ */
+@Data
+public class CursorPage<T> {
+    
+    /**
+     * 当前页数据
+     */
+    private List<T> items;
+    
+    /**
+     * 下一页游标（没有下一页时为 null）
+     */
+    private String nextCursor;
+    
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+}
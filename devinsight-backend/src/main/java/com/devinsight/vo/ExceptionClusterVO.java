@@ -0,0 +1,62 @@
+package com.devinsight.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 异常聚类（Top 异常接口使用）
+ */
+@Data
+public class ExceptionClusterVO {
+    
+    /**
+     * 项目ID
+     */
+    private Long projectId;
+    
+    /**
+     * 异常指纹
+     */
+    private String fingerprint;
+    
+    /**
+     * 最外层异常类型
+     */
+    private String exceptionType;
+    
+    /**
+     * 根因异常类型
+     */
+    private String rootCauseType;
+    
+    /**
+     * 最近一次出现时的异常消息
+     */
+    private String messageSample;
+    
+    /**
+     * 第一个业务代码栈帧
+     */
+    private String topFrame;
+    
+    /**
+     * 出现次数
+     */
+    private Long occurrenceCount;
+    
+    /**
+     * 首次出现时间
+     */
+    private LocalDateTime firstSeenAt;
+    
+    /**
+     * 最近一次出现时间
+     */
+    private LocalDateTime lastSeenAt;
+    
+    /**
+     * 最近一次出现对应的任务ID（可查看其分析结果）
+     */
+    private Long lastTaskId;
+}
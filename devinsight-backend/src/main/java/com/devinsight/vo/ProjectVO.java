@@ -12,6 +12,7 @@ public class ProjectVO {
     private Long ownerId;
     private String ownerName;
     private String myRole;
+    private Boolean resultCacheEnabled;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
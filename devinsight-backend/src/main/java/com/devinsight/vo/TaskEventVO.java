@@ -0,0 +1,47 @@
+package com.devinsight.vo;
+
+import com.devinsight.enums.TaskStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务状态变化事件
+ */
+@Data
+public class TaskEventVO {
+    
+    /**
+     * 任务ID
+     */
+    private Long taskId;
+    
+    /**
+     * 当前状态
+     */
+    private TaskStatus status;
+    
+    /**
+     * 状态描述
+     */
+    private String statusDesc;
+    
+    /**
+     * 长轮询：等待期间状态是否发生了变化（超时返回 false）
+     */
+    private Boolean changed;
+    
+    /**
+     * 事件时间
+     */
+    private LocalDateTime occurredAt;
+    
+    public static TaskEventVO of(Long taskId, TaskStatus status) {
+        TaskEventVO event = new TaskEventVO();
+        event.setTaskId(taskId);
+        event.setStatus(status);
+        event.setStatusDesc(status.getDescription());
+        event.setOccurredAt(LocalDateTime.now());
+        return event;
+    }
+}
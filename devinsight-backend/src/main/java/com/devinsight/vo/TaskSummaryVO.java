@@ -0,0 +1,90 @@
+package com.devinsight.vo;
+
+import com.devinsight.enums.TaskLane;
+import com.devinsight.enums.TaskStatus;
+import com.devinsight.enums.TaskType;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务摘要（列表接口使用，不含输入和结果）
+ */
+@Data
+public class TaskSummaryVO {
+    
+    /**
+     * 任务ID
+     */
+    private Long id;
+    
+    /**
+     * 项目ID
+     */
+    private Long projectId;
+    
+    /**
+     * 用户ID
+     */
+    private Long userId;
+    
+    /**
+     * 任务类型
+     */
+    private TaskType taskType;
+    
+    /**
+     * 任务类型描述
+     */
+    private String taskTypeDesc;
+    
+    /**
+     * 任务状态
+     */
+    private TaskStatus status;
+    
+    /**
+     * 任务状态描述
+     */
+    private String statusDesc;
+    
+    /**
+     * 优先级
+     */
+    private Integer priority;
+    
+    /**
+     * 执行通道
+     */
+    private TaskLane lane;
+    
+    /**
+     * 输入大小
+     */
+    private Long inputSize;
+    
+    /**
+     * 已尝试执行次数
+     */
+    private Integer attemptCount;
+    
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+    
+    /**
+     * 开始执行时间
+     */
+    private LocalDateTime startedAt;
+    
+    /**
+     * 完成时间
+     */
+    private LocalDateTime completedAt;
+    
+    /**
+     * 下次重试时间
+     */
+    private LocalDateTime nextAttemptAt;
+}
@@ -0,0 +1,70 @@
+package com.devinsight.vo;
+
+import com.devinsight.enums.TaskStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 任务执行时间线
+ */
+@Data
+public class TaskTraceVO {
+    
+    private Long taskId;
+    
+    /**
+     * 提交请求的 traceId（可在 OTLP 导出文件 / 追踪后端中查询完整 trace）
+     */
+    private String traceId;
+    
+    private TaskStatus status;
+    
+    private Integer attemptCount;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime startedAt;
+    
+    private LocalDateTime completedAt;
+    
+    /**
+     * 最近一次排队时间（started_at - created_at，毫秒）
+     */
+    private Long queueMillis;
+    
+    /**
+     * 提交到完成的总时间（毫秒，未完成时为空）
+     */
+    private Long totalMillis;
+    
+    /**
+     * 各阶段 span（按开始时间排序；只包含本节点内存中保留的记录）
+     */
+    private List<Span> spans;
+    
+    @Data
+    public static class Span {
+        
+        private String spanId;
+        
+        private String parentSpanId;
+        
+        private String name;
+        
+        /**
+         * 相对任务创建时间的开始偏移（毫秒）
+         */
+        private double offsetMillis;
+        
+        private double durationMillis;
+        
+        private boolean error;
+        
+        private String errorMessage;
+        
+        private Map<String, Object> attributes;
+    }
+}
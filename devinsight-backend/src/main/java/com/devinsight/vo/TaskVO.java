@@ -1,5 +1,6 @@
 package com.devinsight.vo;
 
+import com.devinsight.enums.TaskLane;
 import com.devinsight.enums.TaskStatus;
 import com.devinsight.enums.TaskType;
 import lombok.Data;
@@ -48,10 +49,30 @@ public class TaskVO {
     private String statusDesc;
     
     /**
-     * 输入数据
+     * 优先级
+     */
+    private Integer priority;
+    
+    /**
+     * 预估成本
+     */
+    private Long estimatedCost;
+    
+    /**
+     * 执行通道
+     */
+    private TaskLane lane;
+    
+    /**
+     * 输入数据（上传提交的任务为空）
      */
     private String inputData;
     
+    /**
+     * 输入大小（上传提交为字节数，JSON 提交为字符数）
+     */
+    private Long inputSize;
+    
     /**
      * 结果数据
      */
@@ -76,4 +97,14 @@ public class TaskVO {
      * 完成时间
      */
     private LocalDateTime completedAt;
+    
+    /**
+     * 已尝试执行次数
+     */
+    private Integer attemptCount;
+    
+    /**
+     * 下一次重试时间
+     */
+    private LocalDateTime nextAttemptAt;
 }
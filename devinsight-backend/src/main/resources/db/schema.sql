@@ -27,11 +27,14 @@ CREATE TABLE IF NOT EXISTS project (
     name VARCHAR(100) NOT NULL,
     description TEXT,
     owner_id BIGINT NOT NULL,
+    result_cache_enabled BOOLEAN NOT NULL DEFAULT TRUE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT fk_project_owner FOREIGN KEY (owner_id) REFERENCES sys_user(id) ON DELETE CASCADE
 );
 
+ALTER TABLE project ADD COLUMN IF NOT EXISTS result_cache_enabled BOOLEAN NOT NULL DEFAULT TRUE;
+
 -- 项目表索引
 CREATE INDEX IF NOT EXISTS idx_project_owner ON project(owner_id);
 CREATE INDEX IF NOT EXISTS idx_project_name ON project(name);
@@ -50,7 +53,9 @@ CREATE TABLE IF NOT EXISTS project_member (
 
 -- 项目成员表索引
 CREATE INDEX IF NOT EXISTS idx_project_member_project ON project_member(project_id);
-CREATE INDEX IF NOT EXISTS idx_project_member_user ON project_member(user_id);
+-- 我的项目列表：按用户键集分页 (project_id DESC)（同时覆盖原 user_id 单列索引）
+DROP INDEX IF EXISTS idx_project_member_user;
+CREATE INDEX IF NOT EXISTS idx_project_member_user_page ON project_member(user_id, project_id DESC);
 CREATE INDEX IF NOT EXISTS idx_project_member_role ON project_member(role);
 
 -- 4. AI 任务表
@@ -59,23 +64,169 @@ CREATE TABLE IF NOT EXISTS ai_task (
     project_id BIGINT NOT NULL,
     user_id BIGINT NOT NULL,
     task_type VARCHAR(50) NOT NULL,
-    status VARCHAR(20) NOT NULL CHECK (status IN ('pending', 'running', 'success', 'failed')),
-    input_data TEXT,
-    result_data TEXT,
+    status VARCHAR(20) NOT NULL CHECK (status IN ('pending', 'running', 'success', 'failed', 'dead_letter')),
+    priority SMALLINT NOT NULL DEFAULT 5 CHECK (priority BETWEEN 0 AND 9),
+    estimated_cost BIGINT NOT NULL DEFAULT 0,
+    lane VARCHAR(20) NOT NULL DEFAULT 'batch' CHECK (lane IN ('interactive', 'batch')),
+    content_hash VARCHAR(64),
+    input_data BYTEA,
+    input_ref VARCHAR(255),
+    input_size BIGINT,
+    result_data BYTEA,
     error_message TEXT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     started_at TIMESTAMP,
     completed_at TIMESTAMP,
+    worker_id VARCHAR(100),
+    attempt_count INT NOT NULL DEFAULT 0,
+    heartbeat_at TIMESTAMP,
+    lease_expires_at TIMESTAMP,
+    next_attempt_at TIMESTAMP,
+    trace_parent VARCHAR(55),
     CONSTRAINT fk_task_project FOREIGN KEY (project_id) REFERENCES project(id) ON DELETE CASCADE,
     CONSTRAINT fk_task_user FOREIGN KEY (user_id) REFERENCES sys_user(id) ON DELETE CASCADE
 );
 
+-- 已有数据库升级：补充新增列（新建库时 CREATE TABLE 已包含，这里为空操作）
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS worker_id VARCHAR(100);
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS attempt_count INT NOT NULL DEFAULT 0;
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP;
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMP;
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS priority SMALLINT NOT NULL DEFAULT 5 CHECK (priority BETWEEN 0 AND 9);
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS estimated_cost BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS lane VARCHAR(20) NOT NULL DEFAULT 'batch' CHECK (lane IN ('interactive', 'batch'));
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMP;
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS input_ref VARCHAR(255);
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS input_size BIGINT;
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS trace_parent VARCHAR(55);
+ALTER TABLE ai_task DROP CONSTRAINT IF EXISTS ai_task_status_check;
+ALTER TABLE ai_task ADD CONSTRAINT ai_task_status_check
+    CHECK (status IN ('pending', 'running', 'success', 'failed', 'dead_letter'));
+-- input_data / result_data 由 TEXT 改为带编码标记的 BYTEA（扩展 / 收缩两步迁移，不重写表）：
+-- 1. 旧的 TEXT 列改名为 *_legacy，再新增可为空的 BYTEA 列，都只修改元数据，不重写表、只短暂持有锁
+-- 2. 应用读取时 COALESCE(新列, 旧列)，后台迁移（TaskPayloadCompressionMigrator）分批把旧列编码后写入新列并清空旧列
+-- 3. 迁移完成后的下一个版本去掉 COALESCE 并删除 *_legacy 列
+-- 新建库的 *_legacy 列始终为空
+DO $$
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'ai_task' AND column_name = 'input_data') = 'text' THEN
+        ALTER TABLE ai_task RENAME COLUMN input_data TO input_data_legacy;
+        ALTER TABLE ai_task RENAME COLUMN result_data TO result_data_legacy;
+        ALTER TABLE ai_task ADD COLUMN input_data BYTEA, ADD COLUMN result_data BYTEA;
+    END IF;
+END;
+$$;
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS input_data_legacy TEXT;
+ALTER TABLE ai_task ADD COLUMN IF NOT EXISTS result_data_legacy TEXT;
+
 -- AI 任务表索引
-CREATE INDEX IF NOT EXISTS idx_task_project ON ai_task(project_id);
-CREATE INDEX IF NOT EXISTS idx_task_user ON ai_task(user_id);
+-- 列表键集分页：(created_at DESC, id DESC)，状态过滤走带 status 的索引（同时覆盖原 project_id / user_id 单列索引）
+DROP INDEX IF EXISTS idx_task_project;
+DROP INDEX IF EXISTS idx_task_user;
+CREATE INDEX IF NOT EXISTS idx_task_project_page ON ai_task(project_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_task_project_status_page ON ai_task(project_id, status, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_task_user_page ON ai_task(user_id, created_at DESC, id DESC);
 CREATE INDEX IF NOT EXISTS idx_task_status ON ai_task(status);
 CREATE INDEX IF NOT EXISTS idx_task_type ON ai_task(task_type);
 CREATE INDEX IF NOT EXISTS idx_task_created ON ai_task(created_at DESC);
+-- 调度器公平抢占：按通道、项目跳跃扫描 pending 任务 + 项目内按优先级、提交顺序取任务
+DROP INDEX IF EXISTS idx_task_pending_created;
+DROP INDEX IF EXISTS idx_task_pending_project;
+CREATE INDEX IF NOT EXISTS idx_task_pending_lane
+    ON ai_task(lane, project_id, priority DESC, created_at, id) WHERE status = 'pending';
+-- 调度器公平抢占：统计各项目 running 数
+CREATE INDEX IF NOT EXISTS idx_task_running_project ON ai_task(project_id) WHERE status = 'running';
+-- 结果缓存：按项目 + 内容哈希查找最近一次成功的结果（结果只在项目内复用）
+DROP INDEX IF EXISTS idx_task_content_hash;
+CREATE INDEX IF NOT EXISTS idx_task_project_content_hash
+    ON ai_task(project_id, task_type, content_hash, completed_at DESC) WHERE status = 'success' AND content_hash IS NOT NULL;
+-- 租约回收（status = 'running' AND lease_expires_at < now）专用部分索引
+CREATE INDEX IF NOT EXISTS idx_task_running_lease ON ai_task(lease_expires_at) WHERE status = 'running';
+-- 上传输入保留期清理：只索引仍引用上传文件的已结束任务
+CREATE INDEX IF NOT EXISTS idx_task_input_ref_completed ON ai_task(completed_at)
+    WHERE input_ref IS NOT NULL AND status IN ('success', 'failed', 'dead_letter');
+
+-- 5. 项目任务配额表（可选，未配置的项目使用默认权重 1 和默认并发上限）
+CREATE TABLE IF NOT EXISTS project_task_quota (
+    project_id BIGINT PRIMARY KEY,
+    weight INT NOT NULL DEFAULT 1 CHECK (weight > 0),
+    max_running INT CHECK (max_running >= 0),
+    CONSTRAINT fk_quota_project FOREIGN KEY (project_id) REFERENCES project(id) ON DELETE CASCADE
+);
+
+-- 6. 异常聚类表（同一项目内指纹相同的异常归为一类）
+CREATE TABLE IF NOT EXISTS exception_cluster (
+    id BIGSERIAL PRIMARY KEY,
+    project_id BIGINT NOT NULL,
+    fingerprint VARCHAR(64) NOT NULL,
+    exception_type VARCHAR(255) NOT NULL,
+    root_cause_type VARCHAR(255),
+    message_sample TEXT,
+    top_frame VARCHAR(500),
+    occurrence_count BIGINT NOT NULL DEFAULT 0,
+    first_seen_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_seen_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_task_id BIGINT,
+    CONSTRAINT fk_cluster_project FOREIGN KEY (project_id) REFERENCES project(id) ON DELETE CASCADE,
+    CONSTRAINT uk_cluster_project_fingerprint UNIQUE (project_id, fingerprint)
+);
+
+-- 异常聚类表索引：项目内 Top 异常
+CREATE INDEX IF NOT EXISTS idx_cluster_project_count ON exception_cluster(project_id, occurrence_count DESC);
+
+-- AI 任务通知触发器：新任务写入或任务退回 pending 时通知调度器立即扫描
+-- payload 为空，同一事务内的多条通知会被 PostgreSQL 合并为一条
+CREATE OR REPLACE FUNCTION notify_ai_task_pending() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('ai_task_pending', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_ai_task_pending ON ai_task;
+CREATE TRIGGER trg_ai_task_pending
+    AFTER INSERT OR UPDATE OF status ON ai_task
+    FOR EACH ROW WHEN (NEW.status = 'pending')
+    EXECUTE FUNCTION notify_ai_task_pending();
+
+-- AI 任务状态变化触发器：推送给通过 SSE / 长轮询订阅该任务的客户端
+-- payload 为 "任务ID,新状态"
+CREATE OR REPLACE FUNCTION notify_ai_task_status() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('ai_task_status', NEW.id || ',' || NEW.status);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_ai_task_status ON ai_task;
+CREATE TRIGGER trg_ai_task_status
+    AFTER UPDATE OF status ON ai_task
+    FOR EACH ROW WHEN (NEW.status IS DISTINCT FROM OLD.status)
+    EXECUTE FUNCTION notify_ai_task_status();
+
+-- 项目成员变化触发器：通知各节点失效本地的成员关系缓存
+-- payload 为 "项目ID,用户ID"，删除项目时级联删除的成员记录同样会触发
+CREATE OR REPLACE FUNCTION notify_project_member_changed() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM pg_notify('project_member_changed', OLD.project_id || ',' || OLD.user_id);
+    ELSE
+        PERFORM pg_notify('project_member_changed', NEW.project_id || ',' || NEW.user_id);
+    END IF;
+    IF TG_OP = 'UPDATE' AND (OLD.project_id, OLD.user_id) IS DISTINCT FROM (NEW.project_id, NEW.user_id) THEN
+        PERFORM pg_notify('project_member_changed', OLD.project_id || ',' || OLD.user_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_project_member_changed ON project_member;
+CREATE TRIGGER trg_project_member_changed
+    AFTER INSERT OR UPDATE OR DELETE ON project_member
+    FOR EACH ROW
+    EXECUTE FUNCTION notify_project_member_changed();
 
 -- ============================================
 -- 表结构说明
@@ -92,6 +243,7 @@ CREATE INDEX IF NOT EXISTS idx_task_created ON ai_task(created_at DESC);
 --   - name: 项目名称
 --   - description: 项目描述
 --   - owner_id: 项目所有者（外键关联 sys_user.id）
+--   - result_cache_enabled: 是否复用相同输入的历史分析结果（默认开启）
 --   - created_at/updated_at: 创建和更新时间
 --
 -- project_member: 项目成员关系表
@@ -107,13 +259,44 @@ CREATE INDEX IF NOT EXISTS idx_task_created ON ai_task(created_at DESC);
 --   - project_id: 所属项目（外键）
 --   - user_id: 提交用户（外键）
 --   - task_type: 任务类型（EXCEPTION_ANALYSIS/LOG_SUMMARY）
---   - status: 任务状态（pending/running/success/failed）
---   - input_data: 输入数据（JSON 格式）
---   - result_data: 结果数据（JSON 格式）
+--   - status: 任务状态（pending/running/success/failed/dead_letter）
+--   - priority: 优先级（0-9，越大越优先，仅影响同一项目、同一通道内的顺序）
+--   - estimated_cost: 预估成本（任务类型成本系数 × 输入 KB 数）
+--   - lane: 执行通道（interactive/batch），两个通道使用独立线程池
+--   - content_hash: SHA-256(项目ID + 任务类型 + 归一化输入)，异常分析任务以异常指纹代替输入（命中后写入本次的消息和出错位置）；项目关闭结果缓存时为空
+--   - input_data: 输入数据（JSON 格式，1 字节编码标记 + 内容：0x00 原始 UTF-8 / 0x01 gzip），
+--     通过上传接口提交的任务为空
+--   - input_ref: 上传输入的存储引用（相对 task.input-storage.dir 的路径）
+--   - input_size: 输入大小（字节）
+--   - result_data: 结果数据（JSON 格式，编码方式同 input_data）
+--   - input_data_legacy / result_data_legacy: 升级前的 TEXT 数据，后台迁移写入 input_data / result_data 后清空
 --   - error_message: 失败原因
 --   - created_at: 创建时间
 --   - started_at: 开始执行时间
 --   - completed_at: 完成时间
+--   - worker_id: 持有租约的执行节点
+--   - attempt_count: 已尝试执行次数（每次抢占 +1）
+--   - heartbeat_at: 最近一次心跳时间
+--   - lease_expires_at: 租约到期时间，过期后由回收器退回 pending
+--   - next_attempt_at: 重试任务的最早可执行时间（为空表示立即可执行）
+--   - trace_parent: 提交请求的 W3C traceparent（00-traceId-spanId-01），执行阶段的 span 挂在提交请求之下
+--
+-- project_task_quota: 项目任务配额表（公平调度）
+--   - project_id: 项目 ID（主键，外键）
+--   - weight: 调度权重，权重为 2 的项目每轮获得的任务数约为权重 1 的两倍
+--   - max_running: 跨节点同时运行的任务上限（NULL 表示使用 task.fair-share.default-max-running）
+--
+-- exception_cluster: 异常聚类表
+--   - id: 主键（自增）
+--   - project_id: 项目 ID（外键）
+--   - fingerprint: 异常指纹，SHA-256(异常类型 + 去掉行号 / lambda 序号 / 生成类后缀的栈帧 + 根因)
+--   - exception_type/root_cause_type: 最外层异常类型和根因异常类型
+--   - message_sample: 最近一次出现时的异常消息
+--   - top_frame: 第一个业务代码栈帧
+--   - occurrence_count: 出现次数（每提交一个异常分析任务 +1）
+--   - first_seen_at/last_seen_at: 首次和最近一次出现时间
+--   - last_task_id: 最近一次出现对应的任务
+--   - 唯一约束: (project_id, fingerprint)
 -- ============================================
 
 -- ============================================
@@ -131,9 +314,20 @@ CREATE INDEX IF NOT EXISTS idx_task_created ON ai_task(created_at DESC);
 --    - 删除项目 → 删除所有项目成员记录和任务
 --
 -- 4. ai_task 任务生命周期
---    pending → running → success/failed
+--    pending → running → success/failed/dead_letter
+--                 ↓ 可重试的失败（指数退避）
+--              pending
+--    - 调度器通过 UPDATE ... FOR UPDATE SKIP LOCKED ... RETURNING 批量抢占 pending 任务
+--    - 任务进入 pending 时触发 NOTIFY ai_task_pending，调度器 LISTEN 后立即唤醒
+--    - 任务状态变化时触发 NOTIFY ai_task_status，推送给 SSE / 长轮询订阅者
+--    - running 任务持有租约并由心跳续租；节点宕机导致租约过期后退回 pending，
+--      尝试次数用完则进入 dead_letter
+--    - 抢占时按项目加权轮询，单个项目批量提交不会饿死其他项目
+--    - 提交时命中结果缓存（同一项目内相同 content_hash 在 TTL 内有成功结果）的任务直接写入为 success
+--    - 小任务走 interactive 通道（预留容量，空闲时可借用 batch 容量），大任务走 batch 通道
 --    - pending: 等待执行
 --    - running: 正在执行
 --    - success: 执行成功（有 result_data）
---    - failed: 执行失败（有 error_message）
+--    - failed: 执行失败（不可重试的错误，有 error_message）
+--    - dead_letter: 死信（重试次数用完，有最后一次的 error_message，需人工处理）
 -- ============================================
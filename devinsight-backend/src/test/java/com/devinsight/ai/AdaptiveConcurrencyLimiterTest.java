@@ -0,0 +1,116 @@
+package com.devinsight.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+    
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(20);
+    
+    private static final long WINDOW = TimeUnit.MINUTES.toNanos(10);
+    
+    @Test
+    void rejectsInvalidBounds() {
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(4, 0, 8, 2.0, 0.5, WINDOW))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter(4, 8, 4, 2.0, 0.5, WINDOW))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void acquireStopsAtLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 8, 2.0, 0.5, WINDOW);
+        
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        
+        limiter.onIgnored();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+    
+    @Test
+    void fullyUsedLimitGrowsAdditivelyUpToMax() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 6, 2.0, 0.5, WINDOW);
+        
+        runRounds(limiter, 1);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        
+        runRounds(limiter, 50);
+        assertThat(limiter.getLimit()).isEqualTo(6);
+    }
+    
+    @Test
+    void idleLimitDoesNotGrow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 16, 2.0, 0.5, WINDOW);
+        
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+            limiter.onSuccess(RTT);
+        }
+        
+        assertThat(limiter.getLimit()).isEqualTo(8);
+    }
+    
+    @Test
+    void dropBacksOffMultiplicativelyDownToMin() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 2, 32, 2.0, 0.5, WINDOW);
+        
+        limiter.tryAcquire();
+        limiter.onDropped();
+        assertThat(limiter.getLimit()).isEqualTo(8);
+        
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.onDropped();
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+    
+    @Test
+    void burstOfDropsWithinOneRttBacksOffOnce() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 1, 32, 2.0, 0.5, WINDOW);
+        limiter.tryAcquire();
+        limiter.onSuccess(TimeUnit.SECONDS.toNanos(30));
+        
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+        }
+        for (int i = 0; i < 5; i++) {
+            limiter.onDropped();
+        }
+        
+        assertThat(limiter.getLimit()).isEqualTo(8);
+    }
+    
+    @Test
+    void risingLatencyBacksOffGently() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 16, 2.0, 0.5, WINDOW);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        limiter.onSuccess(RTT);
+        
+        limiter.onSuccess(RTT * 10);
+        
+        // 延迟回退比例为丢弃时的一半：1 - (1 - 0.5) / 2 = 0.75
+        assertThat(limiter.getLimit()).isEqualTo(6);
+    }
+    
+    private static void runRounds(AdaptiveConcurrencyLimiter limiter, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.onSuccess(RTT);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.devinsight.analysis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExceptionAnalyzerTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private final StackTraceFingerprinter fingerprinter = new StackTraceFingerprinter();
+    
+    private final ExceptionAnalyzer analyzer = new ExceptionAnalyzer();
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(fingerprinter, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(analyzer, "fingerprinter", fingerprinter);
+        ReflectionTestUtils.setField(analyzer, "objectMapper", objectMapper);
+    }
+    
+    @Test
+    void occurrencesWithDifferentMessagesShareFingerprint() {
+        ParsedStackTrace first = fingerprinter.parse(stackTrace("order 1001 not found", 42));
+        ParsedStackTrace second = fingerprinter.parse(stackTrace("order 2002 not found", 57));
+        
+        assertThat(first.getFingerprint()).isEqualTo(second.getFingerprint());
+    }
+    
+    @Test
+    void sharedAnalysisShowsEachOccurrencesOwnMessage() throws Exception {
+        String shared = analyzer.analyze(stackTrace("order 1001 not found", 42));
+        ParsedStackTrace second = fingerprinter.parse(stackTrace("order 2002 not found", 57));
+        
+        JsonNode result = objectMapper.readTree(analyzer.withOccurrence(shared, second));
+        
+        assertThat(result.get("message").asText()).isEqualTo("order 2002 not found");
+        assertThat(result.get("rootCause").asText())
+                .isEqualTo("java.lang.IllegalStateException: order 2002 not found");
+        assertThat(result.get("location").asText()).isEqualTo(second.getTopApplicationFrame());
+        assertThat(result.get("fingerprint").asText()).isEqualTo(second.getFingerprint());
+        assertThat(result.get("suggestions")).isEqualTo(objectMapper.readTree(shared).get("suggestions"));
+    }
+    
+    @Test
+    void nonObjectResultIsReturnedUnchanged() {
+        ParsedStackTrace trace = fingerprinter.parse(stackTrace("order 1001 not found", 42));
+        
+        assertThat(analyzer.withOccurrence("not json", trace)).isEqualTo("not json");
+        assertThat(analyzer.withOccurrence("[1, 2]", trace)).isEqualTo("[1, 2]");
+        assertThat(analyzer.withOccurrence("{\"summary\":\"ok\"}", null)).isEqualTo("{\"summary\":\"ok\"}");
+    }
+    
+    private static String stackTrace(String message, int line) {
+        return "java.lang.IllegalStateException: " + message + "\n"
+                + "\tat com.acme.order.OrderService.load(OrderService.java:" + line + ")\n"
+                + "\tat com.acme.order.OrderController.get(OrderController.java:" + (line + 10) + ")\n"
+                + "\tat java.base/java.lang.Thread.run(Thread.java:833)\n";
+    }
+}
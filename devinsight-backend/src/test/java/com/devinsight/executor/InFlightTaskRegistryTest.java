@@ -0,0 +1,90 @@
+package com.devinsight.executor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InFlightTaskRegistryTest {
+    
+    private final InFlightTaskRegistry registry = new InFlightTaskRegistry();
+    
+    private final AtomicInteger executions = new AtomicInteger();
+    
+    private final AtomicInteger coalesced = new AtomicInteger();
+    
+    @Test
+    void sameKeyJoinsRunningExecution() {
+        CompletableFuture<String> provider = new CompletableFuture<>();
+        
+        CompletableFuture<String> leader = execute("1:LOG_SUMMARY:abc", provider);
+        CompletableFuture<String> follower = execute("1:LOG_SUMMARY:abc", new CompletableFuture<>());
+        
+        assertThat(executions).hasValue(1);
+        assertThat(coalesced).hasValue(1);
+        assertThat(follower).isNotDone();
+        
+        provider.complete("result");
+        
+        assertThat(leader.join()).isEqualTo("result");
+        assertThat(follower.join()).isEqualTo("result");
+        assertThat(registry.size()).isZero();
+    }
+    
+    @Test
+    void differentProjectsDoNotCoalesce() {
+        execute("1:LOG_SUMMARY:abc", new CompletableFuture<>());
+        execute("2:LOG_SUMMARY:abc", new CompletableFuture<>());
+        
+        assertThat(executions).hasValue(2);
+        assertThat(coalesced).hasValue(0);
+        assertThat(registry.size()).isEqualTo(2);
+    }
+    
+    @Test
+    void failureIsSharedAndReleasesKey() {
+        CompletableFuture<String> provider = new CompletableFuture<>();
+        CompletableFuture<String> leader = execute("1:EXCEPTION_ANALYSIS:abc", provider);
+        CompletableFuture<String> follower = execute("1:EXCEPTION_ANALYSIS:abc", new CompletableFuture<>());
+        
+        provider.completeExceptionally(new IllegalStateException("AI 服务不可用"));
+        
+        assertThatThrownBy(leader::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(follower::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(registry.size()).isZero();
+    }
+    
+    @Test
+    void executionStartedAfterCompletionRunsAgain() {
+        execute("1:LOG_SUMMARY:abc", CompletableFuture.completedFuture("first")).join();
+        
+        CompletableFuture<String> second = execute("1:LOG_SUMMARY:abc", CompletableFuture.completedFuture("second"));
+        
+        assertThat(second.join()).isEqualTo("second");
+        assertThat(executions).hasValue(2);
+        assertThat(coalesced).hasValue(0);
+    }
+    
+    @Test
+    void executionThatThrowsFailsLeaderAndReleasesKey() {
+        CompletableFuture<String> leader = registry.execute("1:LOG_SUMMARY:abc", () -> {
+            throw new IllegalArgumentException("输入为空");
+        }, coalesced::incrementAndGet);
+        
+        assertThatThrownBy(leader::join).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(registry.size()).isZero();
+    }
+    
+    private CompletableFuture<String> execute(String key, CompletableFuture<String> provider) {
+        return registry.execute(key, () -> {
+            executions.incrementAndGet();
+            return provider;
+        }, coalesced::incrementAndGet);
+    }
+}
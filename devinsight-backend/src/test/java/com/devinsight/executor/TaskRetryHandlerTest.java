@@ -0,0 +1,77 @@
+package com.devinsight.executor;
+
+import com.devinsight.config.TaskRetryProperties;
+import com.devinsight.entity.AiTask;
+import com.devinsight.enums.TaskType;
+import com.devinsight.exception.TaskExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskRetryHandlerTest {
+    
+    private final TaskRetryProperties properties = new TaskRetryProperties();
+    
+    private final TaskRetryHandler handler = new TaskRetryHandler();
+    
+    @BeforeEach
+    void setUp() {
+        properties.getDefaults().setMaxAttempts(3);
+        properties.getDefaults().setInitialDelay(1000);
+        properties.getDefaults().setMultiplier(2.0);
+        properties.getDefaults().setMaxDelay(5000);
+        properties.getDefaults().setJitter(0.2);
+        ReflectionTestUtils.setField(handler, "retryProperties", properties);
+    }
+    
+    @Test
+    void inputErrorsAndExplicitlyFinalFailuresAreNotRetried() {
+        assertThat(handler.isRetryable(new IllegalArgumentException("输入为空"))).isFalse();
+        assertThat(handler.isRetryable(new TaskExecutionException("输入无法解析", false))).isFalse();
+        assertThat(handler.isRetryable(new TaskExecutionException("AI 服务限流", true))).isTrue();
+        assertThat(handler.isRetryable(new IllegalStateException("连接被重置"))).isTrue();
+    }
+    
+    @Test
+    void lastAttemptGoesToDeadLetter() {
+        assertThat(handler.hasAttemptsLeft(task(TaskType.LOG_SUMMARY, 1))).isTrue();
+        assertThat(handler.hasAttemptsLeft(task(TaskType.LOG_SUMMARY, 2))).isTrue();
+        assertThat(handler.hasAttemptsLeft(task(TaskType.LOG_SUMMARY, 3))).isFalse();
+    }
+    
+    @Test
+    void policyCanBeOverriddenPerTaskType() {
+        TaskRetryProperties.Policy policy = new TaskRetryProperties.Policy();
+        policy.setMaxAttempts(5);
+        properties.getPolicies().put(TaskType.EXCEPTION_ANALYSIS, policy);
+        
+        assertThat(handler.hasAttemptsLeft(task(TaskType.EXCEPTION_ANALYSIS, 3))).isTrue();
+        assertThat(handler.hasAttemptsLeft(task(TaskType.EXCEPTION_ANALYSIS, 5))).isFalse();
+        assertThat(handler.hasAttemptsLeft(task(TaskType.LOG_SUMMARY, 3))).isFalse();
+    }
+    
+    @Test
+    void delayBacksOffExponentiallyWithinJitter() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(handler.nextDelayMillis(task(TaskType.LOG_SUMMARY, 1))).isBetween(800L, 1200L);
+            assertThat(handler.nextDelayMillis(task(TaskType.LOG_SUMMARY, 2))).isBetween(1600L, 2400L);
+            assertThat(handler.nextDelayMillis(task(TaskType.LOG_SUMMARY, 3))).isBetween(3200L, 4800L);
+        }
+    }
+    
+    @Test
+    void delayIsCappedAtMaxDelay() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(handler.nextDelayMillis(task(TaskType.LOG_SUMMARY, 10))).isBetween(4000L, 6000L);
+        }
+    }
+    
+    private static AiTask task(TaskType taskType, int attemptCount) {
+        AiTask task = new AiTask();
+        task.setTaskType(taskType);
+        task.setAttemptCount(attemptCount);
+        return task;
+    }
+}
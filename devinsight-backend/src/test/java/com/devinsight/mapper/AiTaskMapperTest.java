@@ -0,0 +1,310 @@
+package com.devinsight.mapper;
+
+import com.baomidou.mybatisplus.autoconfigure.MybatisPlusAutoConfiguration;
+import com.devinsight.entity.AiTask;
+import com.devinsight.enums.TaskLane;
+import com.devinsight.enums.TaskStatus;
+import com.devinsight.enums.TaskType;
+import com.devinsight.typehandler.CompressedText;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 调度相关 SQL（公平抢占、租约、重试 / 死信）在真实 PostgreSQL 上的测试
+ * 使用 schema.sql 初始化数据库；每个测试在事务中执行并回滚。没有 Docker 时跳过。
+ */
+@SpringBootTest(classes = AiTaskMapperTest.MapperConfig.class)
+@Transactional
+@Testcontainers(disabledWithoutDocker = true)
+class AiTaskMapperTest {
+    
+    private static final String LANE = "batch";
+    
+    private static final int DEFAULT_MAX_RUNNING = 100;
+    
+    private static final long LEASE_MILLIS = 60000;
+    
+    /**
+     * 负的租约时长：抢占后租约立即过期
+     */
+    private static final long EXPIRED_LEASE_MILLIS = -1000;
+    
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine")
+            .withCopyFileToContainer(MountableFile.forClasspathResource("db/schema.sql"),
+                    "/docker-entrypoint-initdb.d/schema.sql");
+    
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+    
+    @Autowired
+    private AiTaskMapper taskMapper;
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    private JdbcTemplate jdbc;
+    
+    private long userId;
+    
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        String name = "user-" + UUID.randomUUID();
+        userId = jdbc.queryForObject("INSERT INTO sys_user (username, password, email) VALUES (?, ?, ?) RETURNING id",
+                Long.class, name, "password", name + "@example.com");
+    }
+    
+    @Test
+    void claimSplitsBatchByProjectWeight() {
+        long heavy = createProject(3, null);
+        long light = createProject(1, null);
+        addPending(heavy, 20, 5);
+        addPending(light, 20, 5);
+        
+        Map<Long, Long> claimed = countByProject(claim(8, "w1", LEASE_MILLIS));
+        
+        assertThat(claimed).containsEntry(heavy, 6L).containsEntry(light, 2L);
+    }
+    
+    @Test
+    void claimNeverExceedsProjectMaxRunning() {
+        long limited = createProject(1, 2);
+        long open = createProject(1, null);
+        addPending(limited, 10, 5);
+        addPending(open, 10, 5);
+        
+        Map<Long, Long> first = countByProject(claim(8, "w1", LEASE_MILLIS));
+        assertThat(first).containsEntry(limited, 2L).containsEntry(open, 6L);
+        
+        Map<Long, Long> second = countByProject(claim(8, "w1", LEASE_MILLIS));
+        assertThat(second).doesNotContainKey(limited).containsEntry(open, 4L);
+    }
+    
+    @Test
+    void claimFavoursProjectsWithFewerRunningTasks() {
+        long busy = createProject(1, null);
+        long idle = createProject(1, null);
+        addPending(busy, 2, 5);
+        assertThat(claim(2, "w1", LEASE_MILLIS)).hasSize(2);
+        
+        addPending(busy, 5, 5);
+        addPending(idle, 5, 5);
+        Map<Long, Long> claimed = countByProject(claim(2, "w1", LEASE_MILLIS));
+        
+        assertThat(claimed).containsOnlyKeys(idle).containsEntry(idle, 2L);
+    }
+    
+    @Test
+    void backedOffProjectDoesNotTakeSlots() {
+        long backedOff = createProject(3, null);
+        long runnable = createProject(1, null);
+        addPending(backedOff, 10, 5);
+        addPending(runnable, 10, 5);
+        jdbc.update("UPDATE ai_task SET next_attempt_at = LOCALTIMESTAMP + INTERVAL '1 hour' WHERE project_id = ?",
+                backedOff);
+        
+        Map<Long, Long> claimed = countByProject(claim(8, "w1", LEASE_MILLIS));
+        
+        assertThat(claimed).containsOnlyKeys(runnable).containsEntry(runnable, 8L);
+    }
+    
+    @Test
+    void projectSharesAreCappedAtRunnableTasks() {
+        long heavy = createProject(3, null);
+        long light = createProject(1, null);
+        addPending(heavy, 4, 5);
+        addPending(light, 10, 5);
+        // heavy 只有 1 个任务已到重试时间，其余名额分给 light
+        jdbc.update("UPDATE ai_task SET next_attempt_at = LOCALTIMESTAMP + INTERVAL '1 hour' WHERE id IN " +
+                "(SELECT id FROM ai_task WHERE project_id = ? ORDER BY id LIMIT 3)", heavy);
+        
+        Map<Long, Long> claimed = countByProject(claim(8, "w1", LEASE_MILLIS));
+        
+        assertThat(claimed).containsEntry(heavy, 1L).containsEntry(light, 7L);
+    }
+    
+    @Test
+    void claimTakesHigherPriorityFirstAndMarksRunning() {
+        long project = createProject(1, null);
+        addPending(project, 3, 2);
+        addPending(project, 1, 8);
+        
+        List<AiTask> claimed = claim(1, "w1", LEASE_MILLIS);
+        
+        assertThat(claimed).hasSize(1);
+        AiTask task = claimed.get(0);
+        assertThat(task.getPriority()).isEqualTo(8);
+        assertThat(task.getStatus()).isEqualTo(TaskStatus.RUNNING);
+        assertThat(task.getWorkerId()).isEqualTo("w1");
+        assertThat(task.getAttemptCount()).isEqualTo(1);
+        assertThat(task.getLeaseExpiresAt()).isNotNull();
+    }
+    
+    @Test
+    void expiredLeaseIsReclaimedAndLateResultIsDropped() {
+        long project = createProject(1, null);
+        addPending(project, 1, 5);
+        Long taskId = claim(1, "w1", EXPIRED_LEASE_MILLIS).get(0).getId();
+        
+        assertThat(taskMapper.reclaimExpiredLeases()).containsExactly(taskId);
+        AiTask reclaimed = taskMapper.selectById(taskId);
+        assertThat(reclaimed.getStatus()).isEqualTo(TaskStatus.PENDING);
+        assertThat(reclaimed.getWorkerId()).isNull();
+        assertThat(reclaimed.getLeaseExpiresAt()).isNull();
+        
+        AiTask retaken = claim(1, "w2", LEASE_MILLIS).get(0);
+        assertThat(retaken.getId()).isEqualTo(taskId);
+        assertThat(retaken.getAttemptCount()).isEqualTo(2);
+        
+        LocalDateTime now = LocalDateTime.now();
+        assertThat(taskMapper.updateToSuccess(taskId, "w1", CompressedText.of("{\"late\":true}"), now)).isZero();
+        assertThat(taskMapper.updateToSuccess(taskId, "w2", CompressedText.of("{\"summary\":\"ok\"}"), now))
+                .isEqualTo(1);
+        assertThat(taskMapper.selectDetail(taskId).getResultData().getText()).isEqualTo("{\"summary\":\"ok\"}");
+    }
+    
+    @Test
+    void heartbeatOnlyExtendsOwnLeases() {
+        long project = createProject(1, null);
+        addPending(project, 1, 5);
+        Long taskId = claim(1, "w1", EXPIRED_LEASE_MILLIS).get(0).getId();
+        
+        assertThat(taskMapper.extendLeases(List.of(taskId), "w2", LEASE_MILLIS)).isZero();
+        assertThat(taskMapper.extendLeases(List.of(taskId), "w1", LEASE_MILLIS)).isEqualTo(1);
+        assertThat(taskMapper.reclaimExpiredLeases()).isEmpty();
+    }
+    
+    @Test
+    void expiredLeaseWithoutAttemptsLeftGoesToDeadLetter() {
+        long project = createProject(1, null);
+        addPending(project, 1, 5);
+        Long taskId = claim(1, "w1", EXPIRED_LEASE_MILLIS).get(0).getId();
+        LocalDateTime now = LocalDateTime.now();
+        
+        assertThat(taskMapper.deadLetterExpiredLeases("LOG_SUMMARY", 2, "租约过期", now)).isEmpty();
+        assertThat(taskMapper.deadLetterExpiredLeases("LOG_SUMMARY", 1, "租约过期", now)).containsExactly(taskId);
+        
+        assertThat(taskMapper.selectById(taskId).getStatus()).isEqualTo(TaskStatus.DEAD_LETTER);
+        assertThat(taskMapper.reclaimExpiredLeases()).isEmpty();
+    }
+    
+    @Test
+    void retryWaitsForNextAttemptThenDeadLetters() {
+        long project = createProject(1, null);
+        addPending(project, 1, 5);
+        Long taskId = claim(1, "w1", LEASE_MILLIS).get(0).getId();
+        
+        assertThat(taskMapper.updateToRetry(taskId, "w2", "AI 服务限流", 0)).isZero();
+        assertThat(taskMapper.updateToRetry(taskId, "w1", "AI 服务限流", 60000)).isEqualTo(1);
+        AiTask waiting = taskMapper.selectById(taskId);
+        assertThat(waiting.getStatus()).isEqualTo(TaskStatus.PENDING);
+        assertThat(waiting.getErrorMessage()).isEqualTo("AI 服务限流");
+        assertThat(waiting.getNextAttemptAt()).isNotNull();
+        assertThat(claim(1, "w1", LEASE_MILLIS)).isEmpty();
+        
+        // 到期后可以重新抢占
+        jdbc.update("UPDATE ai_task SET next_attempt_at = LOCALTIMESTAMP WHERE id = ?", taskId);
+        AiTask retried = claim(1, "w1", LEASE_MILLIS).get(0);
+        assertThat(retried.getAttemptCount()).isEqualTo(2);
+        assertThat(retried.getNextAttemptAt()).isNull();
+        
+        assertThat(taskMapper.updateToDeadLetter(taskId, "w1", "AI 服务限流", LocalDateTime.now())).isEqualTo(1);
+        assertThat(taskMapper.selectById(taskId).getStatus()).isEqualTo(TaskStatus.DEAD_LETTER);
+        assertThat(taskMapper.updateToFailed(taskId, "w1", "重复完成", LocalDateTime.now())).isZero();
+        assertThat(claim(1, "w1", LEASE_MILLIS)).isEmpty();
+    }
+    
+    @Test
+    void batchInsertKeepsAllocatedIdsWithTheirTasks() {
+        long project = createProject(1, null);
+        List<AiTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            AiTask task = new AiTask();
+            task.setProjectId(project);
+            task.setUserId(userId);
+            task.setTaskType(TaskType.LOG_SUMMARY);
+            task.setStatus(TaskStatus.PENDING);
+            task.setPriority(i);
+            task.setEstimatedCost(0L);
+            task.setLane(TaskLane.BATCH);
+            task.setInputData(CompressedText.of("input " + i));
+            task.setInputSize(7L);
+            task.setCreatedAt(LocalDateTime.now());
+            tasks.add(task);
+        }
+        
+        List<Long> ids = taskMapper.allocateIds(tasks.size());
+        assertThat(ids).doesNotHaveDuplicates().doesNotContainAnyElementsOf(taskMapper.allocateIds(tasks.size()));
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).setId(ids.get(i));
+        }
+        assertThat(taskMapper.insertBatch(tasks)).isEqualTo(tasks.size());
+        
+        for (int i = 0; i < tasks.size(); i++) {
+            AiTask stored = taskMapper.selectDetail(ids.get(i));
+            assertThat(stored.getPriority()).isEqualTo(i);
+            assertThat(stored.getInputData().getText()).isEqualTo("input " + i);
+        }
+    }
+    
+    private long createProject(int weight, Integer maxRunning) {
+        long projectId = jdbc.queryForObject("INSERT INTO project (name, owner_id) VALUES (?, ?) RETURNING id",
+                Long.class, "project-" + UUID.randomUUID(), userId);
+        jdbc.update("INSERT INTO project_task_quota (project_id, weight, max_running) VALUES (?, ?, ?)",
+                projectId, weight, maxRunning);
+        return projectId;
+    }
+    
+    private void addPending(long projectId, int count, int priority) {
+        jdbc.update("INSERT INTO ai_task (project_id, user_id, task_type, status, priority, lane) " +
+                "SELECT ?, ?, 'LOG_SUMMARY', 'pending', ?, ? FROM generate_series(1, ?)",
+                projectId, userId, priority, LANE, count);
+    }
+    
+    private List<AiTask> claim(int limit, String workerId, long leaseMillis) {
+        return taskMapper.claimPendingTasks(LANE, limit, DEFAULT_MAX_RUNNING, workerId, leaseMillis,
+                LocalDateTime.now());
+    }
+    
+    private static Map<Long, Long> countByProject(List<AiTask> tasks) {
+        return tasks.stream().collect(Collectors.groupingBy(AiTask::getProjectId, Collectors.counting()));
+    }
+    
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+            TransactionAutoConfiguration.class, MybatisPlusAutoConfiguration.class})
+    @MapperScan("com.devinsight.mapper")
+    static class MapperConfig {
+    }
+}
@@ -0,0 +1,79 @@
+package com.devinsight.service;
+
+import com.devinsight.enums.TaskStatus;
+import com.devinsight.vo.TaskEventVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskEventBrokerTest {
+    
+    private final TaskEventBroker broker = new TaskEventBroker();
+    
+    private final CountDownLatch release = new CountDownLatch(1);
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(broker, "dispatchThreads", 1);
+        ReflectionTestUtils.setField(broker, "dispatchQueueCapacity", 1);
+        broker.init();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        broker.shutdown();
+    }
+    
+    @Test
+    void eventIsDeliveredOnDispatchThread() throws InterruptedException {
+        CountDownLatch delivered = new CountDownLatch(1);
+        List<TaskStatus> received = new CopyOnWriteArrayList<>();
+        broker.subscribe(1L, event -> {
+            received.add(event.getStatus());
+            delivered.countDown();
+        }, () -> { });
+        
+        broker.publish(1L, TaskStatus.RUNNING);
+        
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly(TaskStatus.RUNNING);
+    }
+    
+    @Test
+    void subscribersOfRejectedEventAreDropped() {
+        // 唯一的分发线程阻塞在第一个事件上，第二个事件占满队列
+        broker.subscribe(1L, this::block, () -> { });
+        broker.publish(1L, TaskStatus.RUNNING);
+        broker.publish(1L, TaskStatus.RUNNING);
+        
+        AtomicInteger dropped = new AtomicInteger();
+        AtomicInteger otherDropped = new AtomicInteger();
+        Runnable unsubscribe = broker.subscribe(2L, event -> { }, dropped::incrementAndGet);
+        broker.subscribe(3L, event -> { }, otherDropped::incrementAndGet);
+        
+        broker.publish(2L, TaskStatus.SUCCESS);
+        
+        assertThat(dropped).hasValue(1);
+        assertThat(otherDropped).hasValue(0);
+        unsubscribe.run();
+        assertThat(broker.getSubscriptionCount()).isEqualTo(2);
+    }
+    
+    private void block(TaskEventVO event) {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
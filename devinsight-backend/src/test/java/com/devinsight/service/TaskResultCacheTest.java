@@ -0,0 +1,228 @@
+package com.devinsight.service;
+
+import com.devinsight.entity.AiTask;
+import com.devinsight.entity.Project;
+import com.devinsight.enums.TaskType;
+import com.devinsight.mapper.AiTaskMapper;
+import com.devinsight.mapper.ProjectMapper;
+import com.devinsight.typehandler.CompressedText;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskResultCacheTest {
+    
+    private final AiTaskMapper taskMapper = mock(AiTaskMapper.class);
+    
+    private final ProjectMapper projectMapper = mock(ProjectMapper.class);
+    
+    private final TaskResultCache cache = new TaskResultCache();
+    
+    private final AtomicLong nanos = new AtomicLong();
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "taskMapper", taskMapper);
+        ReflectionTestUtils.setField(cache, "projectMapper", projectMapper);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofHours(24));
+        ReflectionTestUtils.setField(cache, "maxWeight", 1024L * 1024);
+        ReflectionTestUtils.setField(cache, "missTtl", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(cache, "ticker", (Ticker) nanos::get);
+        cache.init();
+    }
+    
+    @Test
+    void hashIgnoresLineEndingsAndTrailingWhitespace() {
+        String expected = hash(1L, "java.lang.IllegalStateException: boom\n\tat com.acme.Foo.bar(Foo.java:10)");
+        
+        assertThat(hash(1L, "java.lang.IllegalStateException: boom\r\n\tat com.acme.Foo.bar(Foo.java:10)\r\n"))
+                .isEqualTo(expected);
+        assertThat(hash(1L, "\n\n  java.lang.IllegalStateException: boom   \n\tat com.acme.Foo.bar(Foo.java:10)\t\n\n"))
+                .isEqualTo(expected);
+    }
+    
+    @Test
+    void hashKeepsMeaningfulWhitespace() {
+        assertThat(hash(1L, "a b")).isNotEqualTo(hash(1L, "ab"));
+        assertThat(hash(1L, "a\n\nb")).isNotEqualTo(hash(1L, "a\nb"));
+        assertThat(hash(1L, "a\n  b")).isNotEqualTo(hash(1L, "a\nb"));
+    }
+    
+    @Test
+    void hashNormalizesAcrossDigestChunks() {
+        StringBuilder lf = new StringBuilder();
+        StringBuilder crlf = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            lf.append("2026-10-18 12:00:00 INFO request ").append(i).append('\n');
+            crlf.append("2026-10-18 12:00:00 INFO request ").append(i).append("  \r\n");
+        }
+        
+        assertThat(hash(1L, crlf.toString())).isEqualTo(hash(1L, lf.toString()));
+    }
+    
+    @Test
+    void hashIsScopedToProjectAndTaskType() {
+        String input = "java.lang.NullPointerException";
+        
+        assertThat(hash(1L, input)).isNotEqualTo(hash(2L, input));
+        assertThat(TaskResultCache.hash(1L, TaskType.EXCEPTION_ANALYSIS, input))
+                .isNotEqualTo(TaskResultCache.hash(1L, TaskType.LOG_SUMMARY, input));
+    }
+    
+    @Test
+    void cachedResultIsNotSharedAcrossProjects() {
+        String contentHash = hash(1L, "same input");
+        cache.put(1L, TaskType.LOG_SUMMARY, contentHash, CompressedText.of("{\"summary\":\"project 1\"}"));
+        
+        assertThat(lookup(1L, contentHash).getText()).isEqualTo("{\"summary\":\"project 1\"}");
+        assertThat(lookup(2L, contentHash)).isNull();
+        verify(taskMapper).selectLatestSuccessResults(eq(new Long[]{2L}), eq(new String[]{contentHash}),
+                any(LocalDateTime.class));
+    }
+    
+    @Test
+    void databaseHitIsCachedPerProject() {
+        String contentHash = hash(3L, "input");
+        when(taskMapper.selectLatestSuccessResults(any(), any(), any()))
+                .thenReturn(List.of(successRow(3L, contentHash, "{\"summary\":\"db\"}", LocalDateTime.now())));
+        
+        assertThat(lookup(3L, contentHash).getText()).isEqualTo("{\"summary\":\"db\"}");
+        assertThat(lookup(3L, contentHash).getText()).isEqualTo("{\"summary\":\"db\"}");
+        
+        verify(taskMapper).selectLatestSuccessResults(any(), any(), any());
+    }
+    
+    @Test
+    void databaseHitExpiresFromItsCompletionTime() {
+        String contentHash = hash(3L, "input");
+        when(taskMapper.selectLatestSuccessResults(any(), any(), any()))
+                .thenReturn(List.of(successRow(3L, contentHash, "{\"summary\":\"db\"}",
+                        LocalDateTime.now().minusHours(23))));
+        
+        lookup(3L, contentHash);
+        nanos.addAndGet(Duration.ofMinutes(61).toNanos());
+        lookup(3L, contentHash);
+        
+        // 结果完成于 23 小时前，本地缓存只保留剩余的 1 小时，之后重新查询数据库
+        verify(taskMapper, times(2)).selectLatestSuccessResults(any(), any(), any());
+    }
+    
+    @Test
+    void freshResultLivesForFullTtl() {
+        String contentHash = hash(4L, "input");
+        cache.put(4L, TaskType.LOG_SUMMARY, contentHash, CompressedText.of("{\"summary\":\"fresh\"}"));
+        
+        nanos.addAndGet(Duration.ofHours(23).toNanos());
+        assertThat(lookup(4L, contentHash).getText()).isEqualTo("{\"summary\":\"fresh\"}");
+        
+        nanos.addAndGet(Duration.ofHours(2).toNanos());
+        assertThat(lookup(4L, contentHash)).isNull();
+    }
+    
+    @Test
+    void batchQueriesDatabaseOnceForLocalMisses() {
+        TaskResultCache.ResultKey local = key(6L, "local");
+        TaskResultCache.ResultKey stored = key(6L, "stored");
+        TaskResultCache.ResultKey missing = key(7L, "missing");
+        cache.put(6L, TaskType.LOG_SUMMARY, local.contentHash(), CompressedText.of("{\"summary\":\"local\"}"));
+        when(taskMapper.selectLatestSuccessResults(any(), any(), any()))
+                .thenReturn(List.of(successRow(6L, stored.contentHash(), "{\"summary\":\"db\"}",
+                        LocalDateTime.now())));
+        
+        Map<TaskResultCache.ResultKey, CompressedText> found = cache.lookupAll(List.of(local, stored, missing));
+        
+        assertThat(found).containsOnlyKeys(local, stored);
+        assertThat(found.get(stored).getText()).isEqualTo("{\"summary\":\"db\"}");
+        ArgumentCaptor<String[]> hashes = ArgumentCaptor.forClass(String[].class);
+        verify(taskMapper).selectLatestSuccessResults(any(), hashes.capture(), any());
+        assertThat(hashes.getValue()).containsExactlyInAnyOrder(stored.contentHash(), missing.contentHash());
+    }
+    
+    @Test
+    void rowForUnrequestedProjectAndHashCombinationIsIgnored() {
+        TaskResultCache.ResultKey first = key(8L, "first");
+        TaskResultCache.ResultKey second = key(9L, "second");
+        // 项目和哈希分别按 ANY 匹配，项目 8 + 第二个哈希的组合并未请求
+        when(taskMapper.selectLatestSuccessResults(any(), any(), any()))
+                .thenReturn(List.of(successRow(8L, second.contentHash(), "{\"summary\":\"other\"}",
+                        LocalDateTime.now())));
+        
+        assertThat(cache.lookupAll(List.of(first, second))).isEmpty();
+    }
+    
+    @Test
+    void databaseMissIsRememberedBriefly() {
+        String contentHash = hash(10L, "input");
+        
+        assertThat(lookup(10L, contentHash)).isNull();
+        assertThat(lookup(10L, contentHash)).isNull();
+        verify(taskMapper, times(1)).selectLatestSuccessResults(any(), any(), any());
+        
+        nanos.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertThat(lookup(10L, contentHash)).isNull();
+        verify(taskMapper, times(2)).selectLatestSuccessResults(any(), any(), any());
+    }
+    
+    @Test
+    void putClearsRememberedMiss() {
+        String contentHash = hash(11L, "input");
+        assertThat(lookup(11L, contentHash)).isNull();
+        
+        cache.put(11L, TaskType.LOG_SUMMARY, contentHash, CompressedText.of("{\"summary\":\"done\"}"));
+        
+        assertThat(lookup(11L, contentHash).getText()).isEqualTo("{\"summary\":\"done\"}");
+    }
+    
+    @Test
+    void disabledProjectDoesNotComputeHash() {
+        Project project = new Project();
+        project.setId(5L);
+        project.setResultCacheEnabled(false);
+        when(projectMapper.selectById(5L)).thenReturn(project);
+        
+        assertThat(cache.computeHash(5L, TaskType.LOG_SUMMARY, "input")).isNull();
+        assertThat(lookup(5L, null)).isNull();
+        verify(taskMapper, never()).selectLatestSuccessResults(any(), any(), any());
+    }
+    
+    private CompressedText lookup(Long projectId, String contentHash) {
+        TaskResultCache.ResultKey key = new TaskResultCache.ResultKey(projectId, TaskType.LOG_SUMMARY, contentHash);
+        return cache.lookupAll(List.of(key)).get(key);
+    }
+    
+    private static TaskResultCache.ResultKey key(Long projectId, String input) {
+        return new TaskResultCache.ResultKey(projectId, TaskType.LOG_SUMMARY, hash(projectId, input));
+    }
+    
+    private static AiTask successRow(Long projectId, String contentHash, String result, LocalDateTime completedAt) {
+        AiTask task = new AiTask();
+        task.setProjectId(projectId);
+        task.setTaskType(TaskType.LOG_SUMMARY);
+        task.setContentHash(contentHash);
+        task.setResultData(CompressedText.of(result));
+        task.setCompletedAt(completedAt);
+        return task;
+    }
+    
+    private static String hash(Long projectId, String input) {
+        return TaskResultCache.hash(projectId, TaskType.LOG_SUMMARY, input);
+    }
+}
@@ -0,0 +1,78 @@
+package com.devinsight.typehandler;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressedTextTest {
+    
+    @Test
+    void nullStaysNull() {
+        assertThat(CompressedText.of(null)).isNull();
+    }
+    
+    @Test
+    void shortTextIsStoredRaw() {
+        CompressedText text = CompressedText.of("NullPointerException 日志");
+        
+        assertThat(text.isCompressed()).isFalse();
+        assertThat(text.getEncoded()[0]).isEqualTo(CompressedText.CODEC_RAW);
+        assertThat(text.getText()).isEqualTo("NullPointerException 日志");
+    }
+    
+    @Test
+    void largeRepetitiveTextIsCompressedAndRoundTrips() {
+        String source = "at com.devinsight.service.TaskService.submitTask(TaskService.java:120) 中文\n".repeat(200);
+        
+        CompressedText text = CompressedText.of(source);
+        
+        assertThat(text.isCompressed()).isTrue();
+        assertThat(text.getEncodedSize()).isLessThan(source.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(text.getText()).isEqualTo(source);
+        assertThat(CompressedText.fromEncoded(text.getEncoded()).getText()).isEqualTo(source);
+    }
+    
+    @Test
+    void emptyTextRoundTrips() {
+        assertThat(CompressedText.of("").getText()).isEmpty();
+        assertThat(CompressedText.fromEncoded(new byte[0]).getText()).isEmpty();
+    }
+    
+    @Test
+    void unknownCodecIsReadAsRawUtf8() {
+        byte[] legacy = "{\"summary\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+        
+        assertThat(CompressedText.fromEncoded(legacy).getText()).isEqualTo("{\"summary\":\"ok\"}");
+    }
+    
+    @Test
+    void recompressCompressesLargeRawPayload() {
+        String source = "ERROR connection reset by peer\n".repeat(100);
+        CompressedText raw = CompressedText.fromEncoded(rawEncoded(source));
+        
+        CompressedText recompressed = raw.recompress();
+        
+        assertThat(recompressed).isNotSameAs(raw);
+        assertThat(recompressed.isCompressed()).isTrue();
+        assertThat(recompressed.getText()).isEqualTo(source);
+    }
+    
+    @Test
+    void recompressKeepsSmallOrCompressedPayload() {
+        CompressedText small = CompressedText.of("short");
+        CompressedText compressed = CompressedText.of("x".repeat(4096));
+        
+        assertThat(small.recompress()).isSameAs(small);
+        assertThat(compressed.recompress()).isSameAs(compressed);
+    }
+    
+    private static byte[] rawEncoded(String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = new byte[raw.length + 1];
+        encoded[0] = CompressedText.CODEC_RAW;
+        System.arraycopy(raw, 0, encoded, 1, raw.length);
+        return encoded;
+    }
+}
@@ -0,0 +1,167 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地 AI 服务桩（只依赖 JDK，用于离线压测任务执行器）
+ * 接收 /v1/exception-analysis、/v1/log-summary 请求，按配置的延迟和错误比例返回：
+ * - 正常：延迟 latency ± jitter 毫秒后返回 200 {"result": {...}}
+ * - error-rate：返回 500
+ * - rate-limit-rate：返回 429
+ * - timeout-rate：延迟 hang 毫秒后才返回（用于触发客户端超时）
+ * - slow-rate：延迟 slow-latency 毫秒后正常返回（长尾）
+ * 响应由定时线程池延迟发送，等待期间不占用线程，可以模拟大量并发的慢请求。
+ *
+ * 用法：
+ *   java devinsight-backend/tools/StubAiProviderServer.java --profile flaky --port 9090
+ *   java devinsight-backend/tools/StubAiProviderServer.java --latency 800 --jitter 200 --error-rate 0.05
+ * 后端配置 ai.provider.base-url=http://localhost:9090 即可接入。
+ */
+public class StubAiProviderServer {
+    
+    private static final Map<String, String> PROFILES = Map.of(
+            // 健康：稳定的中等延迟，无错误
+            "healthy", "--latency 500 --jitter 200",
+            // 降级：延迟高、长尾明显，少量 5xx
+            "degraded", "--latency 2000 --jitter 1000 --slow-rate 0.1 --slow-latency 10000 --error-rate 0.02",
+            // 不稳定：频繁 5xx / 429 和超时
+            "flaky", "--latency 800 --jitter 400 --error-rate 0.1 --rate-limit-rate 0.1 --timeout-rate 0.05");
+    
+    private final Map<String, String> options;
+    
+    private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(4);
+    
+    private final AtomicLong requests = new AtomicLong();
+    
+    private final AtomicLong inFlight = new AtomicLong();
+    
+    private final AtomicLong errors = new AtomicLong();
+    
+    private StubAiProviderServer(Map<String, String> options) {
+        this.options = options;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        parse(args, options);
+        String profile = options.get("profile");
+        if (profile != null) {
+            String preset = PROFILES.get(profile);
+            if (preset == null) {
+                System.err.println("未知的 profile: " + profile + "，可选: " + PROFILES.keySet());
+                System.exit(1);
+            }
+            // 命令行上显式指定的参数优先于 profile
+            Map<String, String> merged = new HashMap<>();
+            parse(preset.split(" "), merged);
+            merged.putAll(options);
+            options = merged;
+        }
+        new StubAiProviderServer(options).start();
+    }
+    
+    private static void parse(String[] args, Map<String, String> options) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("无法识别的参数: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+    }
+    
+    private void start() throws IOException {
+        int port = intOption("port", 9090);
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/v1/", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(intOption("threads", 8)));
+        server.start();
+        
+        responder.scheduleAtFixedRate(() -> System.out.printf("requests=%d in-flight=%d errors=%d%n",
+                requests.get(), inFlight.get(), errors.get()), 10, 10, TimeUnit.SECONDS);
+        System.out.println("AI 服务桩已启动: http://localhost:" + port + " " + options);
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "{\"error\":\"method not allowed\"}");
+            return;
+        }
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        requests.incrementAndGet();
+        inFlight.incrementAndGet();
+        
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double roll = random.nextDouble();
+        double errorRate = doubleOption("error-rate", 0);
+        double rateLimitRate = doubleOption("rate-limit-rate", 0);
+        double timeoutRate = doubleOption("timeout-rate", 0);
+        double slowRate = doubleOption("slow-rate", 0);
+        
+        long latency = Math.max(0, longOption("latency", 500)
+                + random.nextLong(-longOption("jitter", 0), longOption("jitter", 0) + 1));
+        int status = 200;
+        if (roll < errorRate) {
+            status = 500;
+        } else if (roll < errorRate + rateLimitRate) {
+            status = 429;
+            latency = Math.min(latency, 50);
+        } else if (roll < errorRate + rateLimitRate + timeoutRate) {
+            latency = longOption("hang", 120000);
+        } else if (roll < errorRate + rateLimitRate + timeoutRate + slowRate) {
+            latency = longOption("slow-latency", 10000);
+        }
+        
+        int responseStatus = status;
+        String responseBody = status == 200
+                ? "{\"result\":{\"provider\":\"stub\",\"latencyMs\":" + latency + ",\"request\":" + body + "}}"
+                : "{\"error\":\"stub error\",\"status\":" + status + "}";
+        responder.schedule(() -> {
+            try {
+                respond(exchange, responseStatus, responseBody);
+            } catch (IOException e) {
+                // 客户端已超时断开
+            } finally {
+                inFlight.decrementAndGet();
+                if (responseStatus != 200) {
+                    errors.incrementAndGet();
+                }
+            }
+        }, latency, TimeUnit.MILLISECONDS);
+    }
+    
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    private int intOption(String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+    
+    private long longOption(String name, long defaultValue) {
+        return options.containsKey(name) ? Long.parseLong(options.get(name)) : defaultValue;
+    }
+    
+    private double doubleOption(String name, double defaultValue) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+}
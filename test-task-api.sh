@@ -34,7 +34,7 @@ echo "2. 获取项目列表..."
 PROJECTS=$(curl -s "$BASE_URL/api/projects" \
   -H "Authorization: Bearer $TOKEN")
 
-PROJECT_ID=$(echo $PROJECTS | jq -r '.data[0].id')
+PROJECT_ID=$(echo $PROJECTS | jq -r '.data.items[0].id')
 
 if [ "$PROJECT_ID" == "null" ] || [ -z "$PROJECT_ID" ]; then
   echo "❌ 未找到项目，请先运行 test-api.sh 创建项目"
@@ -81,18 +81,17 @@ TASK1_STATUS=$(curl -s "$BASE_URL/api/tasks/$TASK1_ID" \
 echo $TASK1_STATUS | jq '{id: .data.id, status: .data.status, statusDesc: .data.statusDesc}'
 echo ""
 
-# 6. 等待任务执行（定时器每5秒扫描一次，任务执行需要2秒）
-echo "6. 等待任务执行（需要约7-10秒）..."
-echo "   - 定时器扫描间隔: 5秒"
-echo "   - 任务模拟执行: 2秒"
-echo "   正在等待..."
-
-for i in {1..10}; do
-  sleep 1
-  echo -n "."
+# 6. 等待任务执行完成（长轮询：状态变化时服务端立即返回，无需反复查询）
+echo "6. 等待任务执行完成..."
+for TASK_ID in $TASK1_ID $TASK2_ID; do
+  STATUS=""
+  while [ "$STATUS" != "success" ] && [ "$STATUS" != "failed" ] && [ "$STATUS" != "dead_letter" ]; do
+    STATUS=$(curl -s "$BASE_URL/api/tasks/$TASK_ID/wait?timeout=30000${STATUS:+&status=$STATUS}" \
+      -H "Authorization: Bearer $TOKEN" | jq -r '.data.status')
+    echo "   任务 $TASK_ID: $STATUS"
+  done
 done
 echo ""
-echo ""
 
 # 7. 再次查询任务1（应该是 success）
 echo "7. 查询任务1详情（应该已完成）..."
@@ -105,6 +104,10 @@ echo ""
 echo "完整结果:"
 echo $TASK1_DETAIL | jq '.data'
 echo ""
+echo "执行时间线:"
+curl -s "$BASE_URL/api/tasks/$TASK1_ID/trace" \
+  -H "Authorization: Bearer $TOKEN" | jq '.data | {traceId, queueMillis, totalMillis, spans: [.spans[] | {name, offsetMillis, durationMillis}]}'
+echo ""
 
 # 8. 查询任务2详情
 echo "8. 查询任务2详情..."
@@ -123,9 +126,9 @@ echo "9. 查询我的所有任务..."
 MY_TASKS=$(curl -s "$BASE_URL/api/tasks/my" \
   -H "Authorization: Bearer $TOKEN")
 
-TASK_COUNT=$(echo $MY_TASKS | jq '.data | length')
-echo "✅ 共 $TASK_COUNT 个任务"
-echo $MY_TASKS | jq '.data[] | {id: .id, type: .taskTypeDesc, status: .statusDesc, createdAt: .createdAt}'
+TASK_COUNT=$(echo $MY_TASKS | jq '.data.items | length')
+echo "✅ 第一页 $TASK_COUNT 个任务（hasMore: $(echo $MY_TASKS | jq '.data.hasMore')）"
+echo $MY_TASKS | jq '.data.items[] | {id: .id, type: .taskTypeDesc, status: .statusDesc, createdAt: .createdAt}'
 echo ""
 
 # 10. 查询项目下的所有任务
@@ -133,8 +136,8 @@ echo "10. 查询项目下的所有任务..."
 PROJECT_TASKS=$(curl -s "$BASE_URL/api/tasks/project/$PROJECT_ID" \
   -H "Authorization: Bearer $TOKEN")
 
-PROJECT_TASK_COUNT=$(echo $PROJECT_TASKS | jq '.data | length')
-echo "✅ 项目 $PROJECT_ID 共 $PROJECT_TASK_COUNT 个任务"
+PROJECT_TASK_COUNT=$(echo $PROJECT_TASKS | jq '.data.items | length')
+echo "✅ 项目 $PROJECT_ID 第一页 $PROJECT_TASK_COUNT 个任务"
 echo ""
 
 # 总结